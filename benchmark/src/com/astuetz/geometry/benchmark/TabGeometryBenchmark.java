@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz.geometry.benchmark;
+
+import com.astuetz.geometry.TabExtents;
+import com.astuetz.geometry.TabGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-frame geometry of the strip: indicator interpolation, visible range lookup and scroll target
+ * computation, for strips of 10 to 100,000 tabs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabGeometryBenchmark {
+
+	private static final int FRAMES = 1024;
+	private static final int VIEWPORT_WIDTH = 1080;
+	private static final int SCROLL_OFFSET = 156;
+	private static final int FIXED_INDICATOR_WIDTH = 60;
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int tabCount;
+
+	private TabExtents extents;
+	private int[] framePositions;
+	private float[] frameOffsets;
+	private int[] frameScrollX;
+	private int frame;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+
+		extents = new TabExtents();
+		extents.setCount(tabCount);
+		int left = 0;
+		for (int i = 0; i < tabCount; i++) {
+			// tab widths of typical titles, between 48dp and 200dp at xxhdpi
+			int width = 144 + random.nextInt(456);
+			extents.set(i, left, left + width);
+			left += width;
+		}
+
+		framePositions = new int[FRAMES];
+		frameOffsets = new float[FRAMES];
+		frameScrollX = new int[FRAMES];
+		int maxScrollX = Math.max(0, extents.getTotalWidth() - VIEWPORT_WIDTH);
+		for (int i = 0; i < FRAMES; i++) {
+			framePositions[i] = random.nextInt(tabCount);
+			frameOffsets[i] = random.nextFloat();
+			frameScrollX[i] = maxScrollX > 0 ? random.nextInt(maxScrollX) : 0;
+		}
+	}
+
+	private int nextFrame() {
+		frame = (frame + 1) & (FRAMES - 1);
+		return frame;
+	}
+
+	@Benchmark
+	public void interpolateIndicator(Blackhole blackhole) {
+		int f = nextFrame();
+		int position = framePositions[f];
+		float offset = frameOffsets[f];
+
+		float left = TabGeometry.indicatorLeft(extents.getLeft(position), extents.getWidth(position), FIXED_INDICATOR_WIDTH, 0, 0);
+		float right = TabGeometry.indicatorRight(extents.getRight(position), extents.getWidth(position), FIXED_INDICATOR_WIDTH, 0, 0);
+		if (position < tabCount - 1) {
+			int next = position + 1;
+			float nextLeft = TabGeometry.indicatorLeft(extents.getLeft(next), extents.getWidth(next), FIXED_INDICATOR_WIDTH, 0, 0);
+			float nextRight = TabGeometry.indicatorRight(extents.getRight(next), extents.getWidth(next), FIXED_INDICATOR_WIDTH, 0, 0);
+			left = TabGeometry.interpolate(left, nextLeft, offset);
+			right = TabGeometry.interpolate(right, nextRight, offset);
+		}
+		blackhole.consume(left);
+		blackhole.consume(right);
+	}
+
+	@Benchmark
+	public void visibleRange(Blackhole blackhole) {
+		int scrollX = frameScrollX[nextFrame()];
+		blackhole.consume(extents.firstVisible(scrollX));
+		blackhole.consume(extents.lastVisible(scrollX + VIEWPORT_WIDTH));
+	}
+
+	@Benchmark
+	public int scrollTarget() {
+		int f = nextFrame();
+		int position = framePositions[f];
+		int offset = (int) (frameOffsets[f] * extents.getWidth(position));
+		return TabGeometry.scrollTarget(extents.getLeft(position), position, offset, SCROLL_OFFSET);
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Horizontal extents of a row of tabs, laid out from left to right without overlap. Lookups by coordinate are binary
+ * searches, so finding the visible tabs does not depend on the number of tabs.
+ */
+public final class TabExtents {
+
+	private int[] lefts = new int[0];
+	private int[] rights = new int[0];
+	private int count;
+
+	/**
+	 * Resizes the extents to {@code count} tabs, keeping the extents of the first tabs.
+	 */
+	public void setCount(int count) {
+		if (count > lefts.length) {
+			int capacity = Math.max(count, lefts.length * 2);
+			lefts = Arrays.copyOf(lefts, capacity);
+			rights = Arrays.copyOf(rights, capacity);
+		}
+		this.count = count;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public void set(int index, int left, int right) {
+		lefts[index] = left;
+		rights[index] = right;
+	}
+
+	public int getLeft(int index) {
+		return lefts[index];
+	}
+
+	public int getRight(int index) {
+		return rights[index];
+	}
+
+	public int getWidth(int index) {
+		return rights[index] - lefts[index];
+	}
+
+	/**
+	 * @return the right edge of the last tab, or 0 without tabs
+	 */
+	public int getTotalWidth() {
+		return count > 0 ? rights[count - 1] : 0;
+	}
+
+	/**
+	 * @return the index of the tab containing {@code x}, clamped to the first and last tab, or -1 without tabs
+	 */
+	public int indexAt(int x) {
+		if (count == 0) {
+			return -1;
+		}
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (lefts[mid] <= x) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the first tab that is at least partially visible in a viewport starting at {@code left}
+	 */
+	public int firstVisible(int left) {
+		int index = indexAt(left);
+		if (index >= 0 && rights[index] <= left && index < count - 1) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * @return the last tab that is at least partially visible in a viewport ending at {@code right}
+	 */
+	public int lastVisible(int right) {
+		int index = indexAt(right);
+		if (index > 0 && lefts[index] >= right) {
+			index--;
+		}
+		return index;
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz.geometry;
+
+/**
+ * The indicator and scroll math of the tab strip, free of any Android dependency so it can be measured on a plain
+ * JVM.
+ */
+public final class TabGeometry {
+
+	private TabGeometry() {
+	}
+
+	/**
+	 * Linear interpolation between two coordinates, {@code fraction} 0 yields {@code from}, 1 yields {@code to}.
+	 */
+	public static float interpolate(float from, float to, float fraction) {
+		return fraction * to + (1f - fraction) * from;
+	}
+
+	/**
+	 * @param tabLeft        left edge of the tab inside the tabs container
+	 * @param tabWidth       width of the tab
+	 * @param indicatorWidth fixed width of the indicator, or 0 to span the whole tab
+	 * @param paddingLeft    left padding of the strip
+	 * @param offset         horizontal offset of the indicator
+	 * @return left edge of the indicator below the tab
+	 */
+	public static int indicatorLeft(int tabLeft, int tabWidth, int indicatorWidth, int paddingLeft, int offset) {
+		int left = paddingLeft + tabLeft;
+		if (indicatorWidth > 0) {
+			left += (tabWidth - indicatorWidth) / 2;
+		}
+		return left + offset;
+	}
+
+	/**
+	 * @see #indicatorLeft(int, int, int, int, int)
+	 */
+	public static int indicatorRight(int tabRight, int tabWidth, int indicatorWidth, int paddingLeft, int offset) {
+		int right = tabRight + paddingLeft;
+		if (indicatorWidth > 0) {
+			right -= (tabWidth - indicatorWidth) / 2;
+		}
+		return right + offset;
+	}
+
+	/**
+	 * Computes the scroll position that keeps the tab at {@code position} at {@code scrollOffset} from the left edge.
+	 * The first tab is never offset, so the strip starts at 0.
+	 *
+	 * @param tabLeft        left edge of the tab
+	 * @param position       position of the tab
+	 * @param offset         how far the pager has scrolled past the tab, in pixels of the tab width
+	 * @param scrollOffset   distance of the selected tab to the left edge
+	 */
+	public static int scrollTarget(int tabLeft, int position, int offset, int scrollOffset) {
+		int scrollX = tabLeft + offset;
+		if (position > 0 || offset > 0) {
+			scrollX -= scrollOffset;
+		}
+		return scrollX;
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * The background thread shared by all strips. It has a looper, so views created on it may create handlers. Work
+ * should be posted in small pieces, one tab or resource at a time, to keep the queue fair between strips.
+ */
+final class BackgroundHandler {
+
+	private static Handler background;
+	private static Handler main;
+
+	private BackgroundHandler() {
+	}
+
+	static synchronized Handler background() {
+		if (background == null) {
+			HandlerThread thread = new HandlerThread("PagerSlidingTabStrip", Process.THREAD_PRIORITY_BACKGROUND);
+			thread.start();
+			background = new Handler(thread.getLooper());
+		}
+		return background;
+	}
+
+	static synchronized Handler main() {
+		if (main == null) {
+			main = new Handler(Looper.getMainLooper());
+		}
+		return main;
+	}
+
+}
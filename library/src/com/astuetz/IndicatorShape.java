@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+/**
+ * Shape of the indicator, set with {@link PagerSlidingTabStrip#setIndicatorShape(IndicatorShape)}. The path and
+ * shader are built in a box with its top left corner at 0,0 and kept until the size of the indicator or its color
+ * changes. Frames in between only translate the canvas, and stretch it for shapes following the tab width. Shapes
+ * that would be distorted by stretching can draw themselves directly instead, see
+ * {@link #drawDirect(Canvas, Paint, float, int)}.
+ * <p>
+ * Instances keep the cached geometry, so each strip needs its own.
+ */
+public abstract class IndicatorShape {
+
+	private final Path path = new Path();
+	private Shader shader;
+	private int builtWidth = -1;
+	private int builtHeight = -1;
+	private int builtColor;
+
+	/**
+	 * Builds the shape for an indicator of the given size.
+	 */
+	protected abstract void buildPath(Path path, int width, int height);
+
+	/**
+	 * @return the shader to fill the shape with, or null to fill it with the indicator color
+	 */
+	protected Shader buildShader(int width, int height, int color) {
+		return null;
+	}
+
+	/**
+	 * @return the width of the shape for the given indicator height, or 0 if it spans the whole indicator width
+	 */
+	protected int getFixedWidth(int height) {
+		return 0;
+	}
+
+	/**
+	 * Draws a shape spanning the whole indicator width without the cached path, called on every frame with the
+	 * canvas translated to the top left corner of the indicator and the paint set to the indicator color. Must not
+	 * allocate.
+	 *
+	 * @return false to draw the cached path, stretched to the indicator width
+	 */
+	protected boolean drawDirect(Canvas canvas, Paint paint, float width, int height) {
+		return false;
+	}
+
+	/**
+	 * Draws the shape between {@code left} and {@code right}, with its bottom at {@code bottom}.
+	 *
+	 * @param settled true if the pager is not between two pages, stretched shapes are only rebuilt then
+	 */
+	final void draw(Canvas canvas, Paint paint, int color, float left, float right, float bottom, int height, boolean settled) {
+		float indicatorWidth = right - left;
+		int fixedWidth = getFixedWidth(height);
+		int width = fixedWidth > 0 ? fixedWidth : Math.round(indicatorWidth);
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+
+		int saveCount = canvas.save();
+		canvas.translate(fixedWidth > 0 ? left + (indicatorWidth - width) / 2f : left, bottom - height);
+		paint.setColor(color);
+		if (fixedWidth > 0 || !drawDirect(canvas, paint, indicatorWidth, height)) {
+			drawPath(canvas, paint, color, indicatorWidth, width, height, fixedWidth > 0, settled);
+		}
+		canvas.restoreToCount(saveCount);
+	}
+
+	private void drawPath(Canvas canvas, Paint paint, int color, float indicatorWidth, int width, int height, boolean fixed, boolean settled) {
+		// stretched shapes are scaled while scrolling and rebuilt once the pager settles
+		boolean resized = width != builtWidth && (fixed || settled || builtWidth <= 0);
+		if (resized || height != builtHeight || color != builtColor) {
+			path.reset();
+			buildPath(path, width, height);
+			shader = buildShader(width, height, color);
+			builtWidth = width;
+			builtHeight = height;
+			builtColor = color;
+		}
+
+		if (!fixed) {
+			canvas.scale(indicatorWidth / builtWidth, 1f);
+		}
+		paint.setShader(shader);
+		canvas.drawPath(path, paint);
+		paint.setShader(null);
+	}
+
+	/**
+	 * A line with round ends, the shape used for {@code pstsRoundIndicator}. It is drawn as a round rect at its
+	 * actual width, so the ends stay round while the indicator stretches between tabs of different widths.
+	 */
+	public static IndicatorShape pill() {
+		return new IndicatorShape() {
+			private final RectF bounds = new RectF();
+
+			@Override
+			protected void buildPath(Path path, int width, int height) {
+				bounds.set(0, 0, width, height);
+				path.addRoundRect(bounds, height / 2f, height / 2f, Path.Direction.CW);
+			}
+
+			@Override
+			protected boolean drawDirect(Canvas canvas, Paint paint, float width, int height) {
+				bounds.set(0, 0, width, height);
+				canvas.drawRoundRect(bounds, height / 2f, height / 2f, paint);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * A triangle pointing up, centered below the tab, twice as wide as the indicator is high.
+	 */
+	public static IndicatorShape triangle() {
+		return new IndicatorShape() {
+			@Override
+			protected void buildPath(Path path, int width, int height) {
+				path.moveTo(0, height);
+				path.lineTo(width / 2f, 0);
+				path.lineTo(width, height);
+				path.close();
+			}
+
+			@Override
+			protected int getFixedWidth(int height) {
+				return 2 * height;
+			}
+		};
+	}
+
+	/**
+	 * A dot centered below the tab, with the indicator height as diameter.
+	 */
+	public static IndicatorShape dot() {
+		return new IndicatorShape() {
+			@Override
+			protected void buildPath(Path path, int width, int height) {
+				path.addCircle(width / 2f, height / 2f, height / 2f, Path.Direction.CW);
+			}
+
+			@Override
+			protected int getFixedWidth(int height) {
+				return height;
+			}
+		};
+	}
+
+	/**
+	 * A line fading from the indicator color on the left to the given color on the right.
+	 */
+	public static IndicatorShape gradientLine(final int endColor) {
+		return new IndicatorShape() {
+			@Override
+			protected void buildPath(Path path, int width, int height) {
+				path.addRect(0, 0, width, height, Path.Direction.CW);
+			}
+
+			@Override
+			protected Shader buildShader(int width, int height, int color) {
+				return new LinearGradient(0, 0, width, 0, color, endColor, Shader.TileMode.CLAMP);
+			}
+		};
+	}
+
+	/**
+	 * A caller supplied shape, defined in a box from 0,0 to 1,1 and stretched to the size of the indicator. The path
+	 * is copied.
+	 */
+	public static IndicatorShape path(Path unitPath) {
+		final Path shape = new Path(unitPath);
+		return new IndicatorShape() {
+			private final Matrix matrix = new Matrix();
+
+			@Override
+			protected void buildPath(Path path, int width, int height) {
+				path.set(shape);
+				matrix.setScale(width, height);
+				path.transform(matrix);
+			}
+		};
+	}
+
+}
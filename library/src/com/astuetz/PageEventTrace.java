@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A recorded sequence of page change events as seen by a {@link PagerSlidingTabStrip}.
+ * <p>
+ * Record a trace with {@link PagerSlidingTabStrip#setPageEventTrace(PageEventTrace)}, typically in debug builds only,
+ * store it with {@link #write(Writer)} and replay it later against another strip with
+ * {@link #replay(PagerSlidingTabStrip, ReplayListener)}, for example in a JVM test. The file format has one event per
+ * line:
+ *
+ * <pre>
+ * &lt;nanos&gt; scrolled &lt;position&gt; &lt;offset&gt; &lt;offsetPixels&gt;
+ * &lt;nanos&gt; state &lt;state&gt;
+ * &lt;nanos&gt; selected &lt;position&gt;
+ * </pre>
+ *
+ * where nanos is the time since the first event. Lines starting with # are comments.
+ */
+public final class PageEventTrace {
+
+	public static final int TYPE_SCROLLED = 0;
+	public static final int TYPE_STATE_CHANGED = 1;
+	public static final int TYPE_SELECTED = 2;
+
+	private static final String[] TYPE_NAMES = { "scrolled", "state", "selected" };
+
+	public static final class Event {
+		public final long timeNanos;
+		public final int type;
+		/** position for scrolled and selected events, the scroll state for state events */
+		public final int value;
+		public final float offset;
+		public final int offsetPixels;
+
+		Event(long timeNanos, int type, int value, float offset, int offsetPixels) {
+			this.timeNanos = timeNanos;
+			this.type = type;
+			this.value = value;
+			this.offset = offset;
+			this.offsetPixels = offsetPixels;
+		}
+	}
+
+	/**
+	 * The work a strip did for a single replayed event.
+	 */
+	public static final class EventWork {
+		public int scrollUpdatesApplied;
+		public int scrollUpdatesSkipped;
+		public int invalidates;
+		public int tabStateCallbacks;
+		public int layoutPasses;
+		public int viewsCreated;
+		public long durationNanos;
+	}
+
+	public interface ReplayListener {
+		void onEventReplayed(int index, Event event, EventWork work);
+	}
+
+	private final List<Event> events = new ArrayList<Event>();
+	private long startNanos = -1;
+
+	public int size() {
+		return events.size();
+	}
+
+	public Event get(int index) {
+		return events.get(index);
+	}
+
+	public void clear() {
+		events.clear();
+		startNanos = -1;
+	}
+
+	void addScrolled(int position, float offset, int offsetPixels) {
+		events.add(new Event(elapsed(), TYPE_SCROLLED, position, offset, offsetPixels));
+	}
+
+	void addStateChanged(int state) {
+		events.add(new Event(elapsed(), TYPE_STATE_CHANGED, state, 0f, 0));
+	}
+
+	void addSelected(int position) {
+		events.add(new Event(elapsed(), TYPE_SELECTED, position, 0f, 0));
+	}
+
+	private long elapsed() {
+		long now = System.nanoTime();
+		if (startNanos < 0) {
+			startNanos = now;
+		}
+		return now - startNanos;
+	}
+
+	public void write(Writer writer) throws IOException {
+		for (Event event : events) {
+			writer.write(Long.toString(event.timeNanos));
+			writer.write(' ');
+			writer.write(TYPE_NAMES[event.type]);
+			writer.write(' ');
+			writer.write(Integer.toString(event.value));
+			if (event.type == TYPE_SCROLLED) {
+				writer.write(String.format(Locale.US, " %.6f %d", event.offset, event.offsetPixels));
+			}
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	public static PageEventTrace read(Reader reader) throws IOException {
+		PageEventTrace trace = new PageEventTrace();
+		BufferedReader in = new BufferedReader(reader);
+		String line;
+		int lineNumber = 0;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split("\\s+");
+			try {
+				long time = Long.parseLong(parts[0]);
+				int value = Integer.parseInt(parts[2]);
+				if (TYPE_NAMES[TYPE_SCROLLED].equals(parts[1])) {
+					trace.events.add(new Event(time, TYPE_SCROLLED, value, Float.parseFloat(parts[3]), Integer.parseInt(parts[4])));
+				} else if (TYPE_NAMES[TYPE_STATE_CHANGED].equals(parts[1])) {
+					trace.events.add(new Event(time, TYPE_STATE_CHANGED, value, 0f, 0));
+				} else if (TYPE_NAMES[TYPE_SELECTED].equals(parts[1])) {
+					trace.events.add(new Event(time, TYPE_SELECTED, value, 0f, 0));
+				} else {
+					throw new IOException("Unknown event type '" + parts[1] + "' in line " + lineNumber);
+				}
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed event in line " + lineNumber + ": " + line);
+			} catch (ArrayIndexOutOfBoundsException e) {
+				throw new IOException("Incomplete event in line " + lineNumber + ": " + line);
+			}
+		}
+		return trace;
+	}
+
+	/**
+	 * Feeds all events into the page listener of the strip, in order and without delay, and reports the work the
+	 * strip did for each of them. The strip has to be set up with a pager and laid out. The strip follows the pages of
+	 * the trace, not the current page of its pager. After each event the strip is laid out again if it requested a
+	 * layout, as the next frame would, and that layout pass is part of the work of the event.
+	 *
+	 * @param listener called after each event, may be null
+	 * @return the total work of the replay
+	 */
+	public EventWork replay(PagerSlidingTabStrip strip, ReplayListener listener) {
+		TabPager.Callback pageListener = strip.getPagerCallback();
+		if (pageListener == null) {
+			throw new IllegalStateException("The strip is not set up with a pager.");
+		}
+
+		StripCounters counters = strip.getCounters();
+		EventWork total = new EventWork();
+
+		for (int i = 0; i < events.size(); i++) {
+			Event event = events.get(i);
+
+			int scrollUpdatesApplied = counters.scrollUpdatesApplied;
+			int scrollUpdatesSkipped = counters.scrollUpdatesSkipped;
+			int invalidates = counters.invalidates;
+			int tabStateCallbacks = counters.tabStateCallbacks;
+			int layoutPasses = counters.layoutPasses;
+			int viewsCreated = counters.tabViewsCreated;
+			long start = System.nanoTime();
+
+			switch (event.type) {
+			case TYPE_SCROLLED:
+				pageListener.onPageScrolled(event.value, event.offset, event.offsetPixels);
+				break;
+			case TYPE_STATE_CHANGED:
+				pageListener.onPageScrollStateChanged(event.value);
+				break;
+			case TYPE_SELECTED:
+				pageListener.onPageSelected(event.value);
+				break;
+			}
+			if (strip.isLayoutRequested()) {
+				layout(strip);
+			}
+
+			EventWork work = new EventWork();
+			work.durationNanos = System.nanoTime() - start;
+			work.scrollUpdatesApplied = counters.scrollUpdatesApplied - scrollUpdatesApplied;
+			work.scrollUpdatesSkipped = counters.scrollUpdatesSkipped - scrollUpdatesSkipped;
+			work.invalidates = counters.invalidates - invalidates;
+			work.tabStateCallbacks = counters.tabStateCallbacks - tabStateCallbacks;
+			work.layoutPasses = counters.layoutPasses - layoutPasses;
+			work.viewsCreated = counters.tabViewsCreated - viewsCreated;
+
+			total.durationNanos += work.durationNanos;
+			total.scrollUpdatesApplied += work.scrollUpdatesApplied;
+			total.scrollUpdatesSkipped += work.scrollUpdatesSkipped;
+			total.invalidates += work.invalidates;
+			total.tabStateCallbacks += work.tabStateCallbacks;
+			total.layoutPasses += work.layoutPasses;
+			total.viewsCreated += work.viewsCreated;
+
+			if (listener != null) {
+				listener.onEventReplayed(i, event, work);
+			}
+		}
+
+		return total;
+	}
+
+	private static void layout(View view) {
+		view.measure(MeasureSpec.makeMeasureSpec(view.getWidth(), MeasureSpec.EXACTLY),
+				MeasureSpec.makeMeasureSpec(view.getHeight(), MeasureSpec.EXACTLY));
+		view.layout(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+	}
+
+}
@@ -17,36 +17,58 @@
 package com.astuetz;
 
 import android.annotation.SuppressLint;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
-import android.database.DataSetObserver;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Paint.Style;
 import android.graphics.RectF;
 import android.graphics.Typeface;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.support.annotation.IdRes;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
-import android.support.v4.view.ViewPager.OnPageChangeListener;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
 import android.widget.HorizontalScrollView;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.ListPopupWindow;
+import android.widget.SectionIndexer;
 import android.widget.TextView;
 
+import com.astuetz.geometry.TabExtents;
+import com.astuetz.geometry.TabGeometry;
 import com.astuetz.pagerslidingtabstrip.R;
 
+import java.util.Arrays;
 import java.util.Locale;
 
 @ViewPager.DecorView
@@ -60,10 +82,30 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		View getPageView(int position);
 	}
 
+	/**
+	 * Variant of {@link ViewTabProvider} for tab views that are expensive to create. The views are created on a
+	 * background thread while lightweight placeholders hold their place, and are attached as they finish, visible
+	 * tabs first.
+	 */
+	public interface AsyncViewTabProvider {
+		/**
+		 * Called on a background thread. Must only create new views, e.g. by inflating a layout without parent, and
+		 * must not touch views attached to a window.
+		 */
+		View createPageView(Context context, int position);
+	}
+
 	public interface DrawableTabProvider {
 		Drawable getPageDrawable(int position);
 	}
 
+	public interface BadgeProvider {
+		/**
+		 * @return the badge text of the page, or null if the page has no badge
+		 */
+		CharSequence getPageBadge(int position);
+	}
+
 	public interface OnTabLongClickListener {
 		boolean onTabLongClick(View view, int position);
 	}
@@ -76,6 +118,14 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		void onTabStateChange(View view, int position, boolean isSelected);
 	}
 
+	public interface StripMetricsListener {
+		void onRebuild(int tabCount, long durationNanos);
+
+		void onTabStylesUpdated(long durationNanos);
+
+		void onDraw(long durationNanos);
+	}
+
 	// @formatter:off
 	private static final int[] ATTRS = new int[] {
 			android.R.attr.textSize,
@@ -83,25 +133,75 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 	};
 	// @formatter:on
 
+	private static final int TEXT_COLOR_STEPS = 32;
+
+	private static final int[] STATE_ENABLED = { android.R.attr.state_enabled };
+	private static final int[] STATE_SELECTED = { android.R.attr.state_enabled, android.R.attr.state_selected };
+	private static final int[] STATE_PRESSED = { android.R.attr.state_enabled, android.R.attr.state_pressed };
+	private static final int[] STATE_PRESSED_SELECTED = { android.R.attr.state_enabled, android.R.attr.state_pressed,
+			android.R.attr.state_selected };
+
 	private LinearLayout.LayoutParams defaultTabLayoutParams;
 	private LinearLayout.LayoutParams expandedTabLayoutParams;
 
-	private PageListener pagerListener = null;
-	private PagerAdapterObserver pagerAdapterObserver = null;
+	private PageListener pagerCallback = null;
+	private boolean pagerCallbackRegistered = false;
+	private final DetachedPagerCallback detachedPagerCallback = new DetachedPagerCallback();
 	private PagerSlidingTabStrip.OnTabClickListener onTabClickListener;
 	private PagerSlidingTabStrip.OnTabLongClickListener onTabLongClickListener;
 	private PagerSlidingTabStrip.OnTabStateChangeListener onTabStateChangeListener;
+	private PagerSlidingTabStrip.StripMetricsListener stripMetricsListener;
 
 	private LinearLayout tabsContainer;
-	private ViewPager pager;
+	private TabPager tabPager;
+	private TabInflater tabInflater;
+	private int measuredTabWidth = 0;
+	private final Runnable scrollToCurrentTab = new Runnable() {
+		@Override
+		public void run() {
+			scrollToChild(currentPosition, 0);
+		}
+	};
+	// selects and scrolls to the current tab once the rebuilt tabs are laid out
+	private final ViewTreeObserver.OnGlobalLayoutListener firstLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+		@Override
+		public void onGlobalLayout() {
+			removeFirstLayoutListener();
+			currentPosition = clampTab(pageToTab(tabPager.getCurrentItem()));
+			if (skipInitialScroll) {
+				// the restored scroll position was already applied in onLayout
+				skipInitialScroll = false;
+			} else {
+				scrollToChild(currentPosition, 0);
+			}
+			notifyTabStateChanged(currentPosition);
+			updateTabEmphasis();
+		}
+	};
+	private boolean firstLayoutListenerAdded = false;
 
 	private int tabCount;
 
 	private int currentPosition = 0;
+	// the page of the last onPageSelected event, so a replayed trace does not depend on the state of the pager
+	private int selectedPage = 0;
+
+	private int maxTabs = 0;
+	private boolean windowed = false;
+	private int windowStart = 0;
+	private int windowCenterPage = -1;
+	private View windowAnchorTab;
+	private int windowAnchorLeft;
+	private int windowAnchorScrollX;
+	private TextView overflowTab;
+	private ListPopupWindow overflowChooser;
 	private float currentPositionOffset = 0f;
 
 	private Paint rectPaint;
 	private Paint dividerPaint;
+	private Paint badgePaint;
+	private Paint badgeTextPaint;
+	private Paint scrubberTextPaint;
 
 	private int indicatorColor = 0xFF666666;
 	private int underlineColor = 0x1A000000;
@@ -119,21 +219,103 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 
 	private int tabTextSize = 12;
 	private int tabTextColor = 0xFF666666;
+	private int selectedTabTextColor = 0;
+	private boolean hasSelectedTabTextColor = false;
+	private float selectedTabTextScale = 1f;
+	private float selectedTabAlpha = 1f;
+	private float unselectedTabAlpha = 1f;
+	private ColorStateList[] tabTextColorSteps;
+	private int[] appliedTabTextColorSteps;
+	private int emphasizedTab = -1;
+	private int emphasizedNextTab = -1;
+	// tabs may still be scaled or faded after the last emphasis setting was turned off
+	private boolean tabEmphasisApplied = false;
 	private Typeface tabTypeface = null;
 	private int tabTypefaceStyle = Typeface.BOLD;
+	private String fontPath;
+	private TypefaceCache.Callback typefaceCallback;
 
 	private int lastScrollX = 0;
 
 	private int tabBackgroundResId = 0;
+	private boolean sharedTabBackground = false;
+	private Drawable selectedTabBackground;
+	private Drawable pressedTabBackground;
+	private int selectedTab = -1;
+	private int pressedTab = -1;
+	private boolean tabPressed = false;
+	private float pressedDownX;
 
 	private int fixedIndicatorWidth = 0;
-	private boolean roundIndicator = false;
+	private IndicatorShape indicatorShape;
 	private @IdRes
 	int customIndicatorId = 0;
 	private Bitmap customIndicator;
+	private boolean customIndicatorLoading = false;
 	private int indicatorOffset = 0;
 	private int indicatorPaddingBottom = 0;
 
+	private boolean saveTabMetrics = false;
+	private int[] restoredTabWidths;
+	private int restoredScrollX;
+	private int restoredContentHash;
+	private boolean tabWidthsPinned = false;
+	private int pendingScrollX = -1;
+	private boolean skipInitialScroll = false;
+
+	private boolean hardwareLayerOnScroll = false;
+	private int maxHardwareLayerWidth = 4096;
+	private int maxHardwareLayerHeight = 4096;
+	private boolean maxTextureSizeRead = false;
+	private boolean tabsLayerPromoted = false;
+
+	private int badgeColor = 0xFFE53935;
+	private int badgeTextColor = 0xFFFFFFFF;
+	private int badgeTextSize = 10;
+	private int badgePadding = 4;
+	private int badgeMargin = 4;
+	private String[] badgeTexts;
+	private float[] badgeTextWidths;
+	private float badgeHeight;
+	private float badgeBaseline;
+	private final RectF badgeRect = new RectF();
+
+	private final TabExtents tabExtents = new TabExtents();
+
+	private boolean scrubberEnabled = false;
+	private int scrubberColor = 0xE0212121;
+	private int scrubberEdgeSize = 24;
+	private int scrubTouchSlop;
+	private boolean scrubbing = false;
+	private boolean scrubFromEdge = false;
+	private float scrubDownX;
+	private float scrubX;
+	private int scrubPosition = -1;
+	private String scrubLabel;
+	private final Runnable startScrubOnLongPress = new Runnable() {
+		@Override
+		public void run() {
+			startScrub();
+		}
+	};
+
+	private final StripCounters counters = new StripCounters();
+	private PageEventTrace pageEventTrace;
+
+	private TrimMemoryCallbacks trimMemoryCallbacks;
+	private boolean[] releasedTabs;
+	private int releasedTabCount = 0;
+	private boolean restoreTabsPending = false;
+	private final Runnable restoreReleasedTabs = new Runnable() {
+		@Override
+		public void run() {
+			restoreTabsPending = false;
+			restoreVisibleTabs();
+		}
+	};
+	private boolean metricsEnabled = false;
+	private int layerPromotionCount = 0;
+
 	private Locale locale;
 
 	public PagerSlidingTabStrip(Context context) {
@@ -163,8 +345,12 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		underlineHeight = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, underlineHeight, dm);
 		dividerPadding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dividerPadding, dm);
 		tabPadding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, tabPadding, dm);
+		scrubberEdgeSize = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, scrubberEdgeSize, dm);
 		dividerWidth = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dividerWidth, dm);
 		tabTextSize = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, tabTextSize, dm);
+		badgeTextSize = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, badgeTextSize, dm);
+		badgePadding = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, badgePadding, dm);
+		badgeMargin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, badgeMargin, dm);
 
 		// get system attrs (android:textSize and android:textColor)
 
@@ -187,17 +373,34 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		dividerPadding = a.getDimensionPixelSize(R.styleable.PagerSlidingTabStrip_pstsDividerPadding, dividerPadding);
 		tabPadding = a.getDimensionPixelSize(R.styleable.PagerSlidingTabStrip_pstsTabPaddingLeftRight, tabPadding);
 		tabBackgroundResId = a.getResourceId(R.styleable.PagerSlidingTabStrip_pstsTabBackground, tabBackgroundResId);
+		sharedTabBackground = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsSharedTabBackground, sharedTabBackground);
 		shouldExpand = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsShouldExpand, shouldExpand);
 		scrollOffset = a.getDimensionPixelSize(R.styleable.PagerSlidingTabStrip_pstsScrollOffset, scrollOffset);
 		textAllCaps = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsTextAllCaps, textAllCaps);
+		fontPath = a.getString(R.styleable.PagerSlidingTabStrip_pstsFontPath);
+		maxTabs = a.getInt(R.styleable.PagerSlidingTabStrip_pstsMaxTabs, maxTabs);
 		fixedIndicatorWidth = a.getDimensionPixelSize(R.styleable.PagerSlidingTabStrip_pstsFixedIndicatorWidth, fixedIndicatorWidth);
-		roundIndicator = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsRoundIndicator, roundIndicator);
+		boolean roundIndicator = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsRoundIndicator, false);
+		indicatorShape = createIndicatorShape(a.getInt(R.styleable.PagerSlidingTabStrip_pstsIndicatorShape, roundIndicator ? 1 : 0),
+				a.getColor(R.styleable.PagerSlidingTabStrip_pstsIndicatorEndColor, 0));
 		customIndicatorId = a.getResourceId(R.styleable.PagerSlidingTabStrip_pstsCustomIndicator, customIndicatorId);
 		if (customIndicatorId != 0) {
 			customIndicator = BitmapFactory.decodeResource(getResources(), customIndicatorId);
 		}
 		indicatorOffset = a.getDimensionPixelSize(R.styleable.PagerSlidingTabStrip_pstsIndicatorOffset, indicatorOffset);
 		indicatorPaddingBottom = a.getDimensionPixelOffset(R.styleable.PagerSlidingTabStrip_pstsIndicatorPaddingBottom, indicatorPaddingBottom);
+		saveTabMetrics = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsSaveTabMetrics, saveTabMetrics);
+		hasSelectedTabTextColor = a.hasValue(R.styleable.PagerSlidingTabStrip_pstsSelectedTextColor);
+		selectedTabTextColor = a.getColor(R.styleable.PagerSlidingTabStrip_pstsSelectedTextColor, tabTextColor);
+		selectedTabTextScale = a.getFloat(R.styleable.PagerSlidingTabStrip_pstsSelectedTextScale, selectedTabTextScale);
+		selectedTabAlpha = a.getFloat(R.styleable.PagerSlidingTabStrip_pstsSelectedTabAlpha, selectedTabAlpha);
+		unselectedTabAlpha = a.getFloat(R.styleable.PagerSlidingTabStrip_pstsUnselectedTabAlpha, unselectedTabAlpha);
+		hardwareLayerOnScroll = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsHardwareLayerOnScroll, hardwareLayerOnScroll);
+		badgeColor = a.getColor(R.styleable.PagerSlidingTabStrip_pstsBadgeColor, badgeColor);
+		badgeTextColor = a.getColor(R.styleable.PagerSlidingTabStrip_pstsBadgeTextColor, badgeTextColor);
+		badgeTextSize = a.getDimensionPixelSize(R.styleable.PagerSlidingTabStrip_pstsBadgeTextSize, badgeTextSize);
+		scrubberEnabled = a.getBoolean(R.styleable.PagerSlidingTabStrip_pstsScrubberEnabled, scrubberEnabled);
+		scrubberColor = a.getColor(R.styleable.PagerSlidingTabStrip_pstsScrubberColor, scrubberColor);
 
 		a.recycle();
 
@@ -209,39 +412,254 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		dividerPaint.setAntiAlias(true);
 		dividerPaint.setStrokeWidth(dividerWidth);
 
+		badgePaint = new Paint();
+		badgePaint.setAntiAlias(true);
+		badgePaint.setStyle(Style.FILL);
+
+		badgeTextPaint = new Paint();
+		badgeTextPaint.setAntiAlias(true);
+		badgeTextPaint.setTextAlign(Paint.Align.CENTER);
+		updateBadgeTextMetrics();
+
+		scrubberTextPaint = new Paint();
+		scrubberTextPaint.setAntiAlias(true);
+		scrubberTextPaint.setTextAlign(Paint.Align.CENTER);
+		scrubberTextPaint.setColor(0xFFFFFFFF);
+		scrubTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+		loadSharedTabBackgrounds();
+
 		defaultTabLayoutParams = new LinearLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
 		expandedTabLayoutParams = new LinearLayout.LayoutParams(0, LayoutParams.MATCH_PARENT, 1.0f);
 
 		if (locale == null) {
 			locale = getResources().getConfiguration().locale;
 		}
+
+		if (fontPath != null) {
+			loadFont();
+		}
 	}
 
 	public void setupWithViewPager(ViewPager pager) {
-		this.pager = pager;
-
 		if (pager.getAdapter() == null) {
 			throw new IllegalStateException("ViewPager does not have adapter instance.");
 		}
 
-		if (pagerListener == null) {
-			pagerListener = new PageListener();
+		setTabPager(new ViewPagerTabPager(pager));
+	}
+
+	/**
+	 * Sets up the strip with any pager, e.g. a {@link RecyclerViewTabPager}. Pagers reporting which pages changed
+	 * let the strip update only those tabs instead of rebuilding all of them.
+	 */
+	public void setTabPager(TabPager tabPager) {
+		if (this.tabPager != null) {
+			unregisterPagerCallback();
+			this.tabPager.unregisterCallback(detachedPagerCallback);
+		}
+		this.tabPager = tabPager;
+
+		if (pagerCallback == null) {
+			pagerCallback = new PageListener();
+		}
+		registerPagerCallback();
+
+		notifyDataSetChanged();
+	}
+
+	public TabPager getTabPager() {
+		return tabPager;
+	}
+
+	/**
+	 * Shows the tabs of the model, without any pager. Tabs are matched with the current ones by their stable id:
+	 * kept tabs reuse their views and are only rebound if their content changed, and the selection follows the id
+	 * of the selected tab. Clicking a tab selects it, the selection can also be changed through
+	 * {@link #getTabPager()}. Must be called on the main thread, the model may be built on any thread.
+	 */
+	public void setTabModel(TabModel model) {
+		if (!(tabPager instanceof TabModelPager) || tabsContainer.getChildCount() != tabCount) {
+			setTabPager(new TabModelPager(model));
+			return;
+		}
+		if (maxTabs > 0 && model.size() > maxTabs) {
+			// windowed tabs are rebuilt with their overflow tab, the selection still follows its id
+			TabModelPager pager = (TabModelPager) tabPager;
+			pager.setModel(model, findCurrentItem(pager, model));
+			notifyDataSetChanged();
+			return;
+		}
+
+		beginTraceSection("PSTS.applyTabModel");
+		try {
+			reconcileTabs((TabModelPager) tabPager, model);
+		} finally {
+			endTraceSection();
+		}
+	}
+
+	/**
+	 * @return the model set with {@link #setTabModel(TabModel)}, or null if the tabs come from a pager
+	 */
+	public TabModel getTabModel() {
+		return tabPager instanceof TabModelPager ? ((TabModelPager) tabPager).getModel() : null;
+	}
+
+	/**
+	 * @return the position of the selected tab in the new model, or the nearest position if it was removed
+	 */
+	private static int findCurrentItem(TabModelPager pager, TabModel model) {
+		TabModel old = pager.getModel();
+		int current = pager.getCurrentItem();
+		int newCurrent = current < old.size() ? model.indexOfId(old.get(current).getId()) : -1;
+		if (newCurrent < 0) {
+			newCurrent = Math.max(0, Math.min(current, model.size() - 1));
+		}
+		return newCurrent;
+	}
+
+	private void reconcileTabs(TabModelPager pager, TabModel model) {
+		TabModel old = pager.getModel();
+		int newCurrent = findCurrentItem(pager, model);
+
+		clearTabEmphasis();
+		releasePinnedTabWidths();
+
+		// find the views of kept tabs and rebind the changed ones
+		View[] views = new View[model.size()];
+		boolean[] restyle = new boolean[model.size()];
+		for (int i = 0; i < model.size(); i++) {
+			TabModel.Tab tab = model.get(i);
+			int oldPosition = old.indexOfId(tab.getId());
+			if (oldPosition < 0) {
+				continue;
+			}
+			View view = tabsContainer.getChildAt(oldPosition);
+			if ((view instanceof TextView) != isTextModelTab(tab)) {
+				continue;
+			}
+			if (!tab.sameContent(old.get(oldPosition))) {
+				bindModelTab(view, tab);
+				restyle[i] = true;
+			}
+			views[i] = view;
+		}
+
+		pager.setModel(model, newCurrent);
+
+		// move kept views into place and create the new ones, views in front of i are already in place
+		for (int i = 0; i < model.size(); i++) {
+			View view = views[i];
+			if (view == null) {
+				addTab(i, createModelTab(model.get(i)));
+				restyle[i] = true;
+			} else if (tabsContainer.getChildAt(i) != view) {
+				tabsContainer.removeView(view);
+				tabsContainer.addView(view, i);
+			}
+		}
+		if (tabsContainer.getChildCount() > model.size()) {
+			tabsContainer.removeViews(model.size(), tabsContainer.getChildCount() - model.size());
+		}
+
+		tabCount = model.size();
+		releasedTabs = null;
+		releasedTabCount = 0;
+		appliedTabTextColorSteps = null;
+		prepareTabTextColorSteps();
+		for (int i = 0; i < tabCount; i++) {
+			if (restyle[i]) {
+				styleTab(i, tabsContainer.getChildAt(i));
+			}
+		}
+		loadBadges();
+
+		syncToCurrentPage();
+	}
+
+	private static boolean isTextModelTab(TabModel.Tab tab) {
+		return tab.getTitle() != null || !tab.hasIcon();
+	}
+
+	private View createModelTab(TabModel.Tab tab) {
+		View view;
+		if (isTextModelTab(tab)) {
+			TextView text = new TextView(getContext());
+			text.setGravity(Gravity.CENTER);
+			text.setSingleLine();
+			text.setCompoundDrawablePadding(tabPadding / 2);
+			view = text;
 		} else {
-			pager.removeOnPageChangeListener(pagerListener);
+			view = new ImageButton(getContext());
 		}
-		pager.addOnPageChangeListener(pagerListener);
+		bindModelTab(view, tab);
+		return view;
+	}
 
-		if (pagerAdapterObserver == null) {
-			pagerAdapterObserver = new PagerAdapterObserver();
+	private void bindModelTab(View view, TabModel.Tab tab) {
+		Drawable icon = tab.getIcon();
+		if (icon == null && tab.getIconResId() != 0) {
+			icon = ContextCompat.getDrawable(getContext(), tab.getIconResId());
+		}
+		if (view instanceof TextView) {
+			TextView text = (TextView) view;
+			text.setText(tab.getTitle() != null ? tab.getTitle().toString() : "");
+			text.setCompoundDrawablesWithIntrinsicBounds(icon, null, null, null);
 		} else {
-			try {
-				pager.getAdapter().unregisterDataSetObserver(pagerAdapterObserver);
-			} catch (IllegalStateException e) {
+			((ImageView) view).setImageDrawable(icon);
+		}
+		view.setContentDescription(tab.getContentDescription());
+	}
+
+	/**
+	 * Registers the callback with the pager. It is unregistered again when the strip is detached, so a pager or
+	 * adapter outliving the strip does not keep it reachable.
+	 */
+	private void registerPagerCallback() {
+		if (pagerCallbackRegistered) {
+			return;
+		}
+		tabPager.registerCallback(pagerCallback);
+		pagerCallbackRegistered = true;
+	}
+
+	private void unregisterPagerCallback() {
+		if (!pagerCallbackRegistered) {
+			return;
+		}
+		tabPager.unregisterCallback(pagerCallback);
+		pagerCallbackRegistered = false;
+	}
+
+	private Object getTabProvider() {
+		return tabPager != null ? tabPager.getTabProvider() : null;
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+			if (trimMemoryCallbacks == null) {
+				trimMemoryCallbacks = new TrimMemoryCallbacks();
 			}
+			getContext().getApplicationContext().registerComponentCallbacks(trimMemoryCallbacks);
 		}
-		pager.getAdapter().registerDataSetObserver(pagerAdapterObserver);
 
-		notifyDataSetChanged();
+		if (tabPager != null && !pagerCallbackRegistered) {
+			tabPager.unregisterCallback(detachedPagerCallback);
+			registerPagerCallback();
+			// page changes while detached went unnoticed, data set changes were only recorded
+			if (detachedPagerCallback.dataSetChanged) {
+				detachedPagerCallback.dataSetChanged = false;
+				notifyDataSetChanged();
+			} else {
+				syncToCurrentPage();
+			}
+		}
+		if (tabPager != null && tabInflater == null) {
+			startTabInflation(currentPosition);
+		}
 	}
 
 	public void setOnTabClickListener(PagerSlidingTabStrip.OnTabClickListener listener) {
@@ -256,45 +674,494 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		this.onTabStateChangeListener = listener;
 	}
 
+	public void setStripMetricsListener(PagerSlidingTabStrip.StripMetricsListener listener) {
+		this.stripMetricsListener = listener;
+	}
+
 	public void notifyDataSetChanged() {
+		beginTraceSection("PSTS.rebuild");
+		try {
+			final boolean timed = isMetricsEnabled();
+			final long start = timed ? System.nanoTime() : 0;
+
+			rebuildTabs();
+
+			counters.rebuilds++;
+			if (timed) {
+				long duration = System.nanoTime() - start;
+				counters.lastRebuildNanos = duration;
+				counters.totalRebuildNanos += duration;
+				if (stripMetricsListener != null) {
+					stripMetricsListener.onRebuild(tabCount, duration);
+				}
+			}
+		} finally {
+			endTraceSection();
+		}
+	}
 
+	private void rebuildTabs() {
+
+		cancelTabInflation();
 		tabsContainer.removeAllViews();
+		tabExtents.setCount(0);
+		releasedTabs = null;
+		releasedTabCount = 0;
+		tabWidthsPinned = false;
+		emphasizedTab = -1;
+		emphasizedNextTab = -1;
+		appliedTabTextColorSteps = null;
+
+		overflowTab = null;
+		windowAnchorTab = null;
+		dismissOverflowChooser();
+
+		int pageCount = tabPager.getCount();
+		selectedPage = tabPager.getCurrentItem();
+		windowed = maxTabs > 0 && pageCount > maxTabs;
+		if (windowed) {
+			int center = windowCenterPage >= 0 ? windowCenterPage : tabPager.getCurrentItem();
+			windowStart = Math.max(0, Math.min(center - maxTabs / 2, pageCount - maxTabs));
+			tabCount = maxTabs;
+		} else {
+			windowStart = 0;
+			tabCount = pageCount;
+		}
+		windowCenterPage = -1;
+
+		for (int i = 0; i < tabCount; i++) {
+			addTabFor(i);
+		}
+		if (windowed) {
+			addOverflowTab();
+		}
+		startTabInflation(pageToTab(tabPager.getCurrentItem()));
+
+		updateTabStyles();
+
+		loadBadges();
+
+		applyRestoredTabMetrics();
+
+		if (!firstLayoutListenerAdded) {
+			getViewTreeObserver().addOnGlobalLayoutListener(firstLayoutListener);
+			firstLayoutListenerAdded = true;
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@SuppressLint("NewApi")
+	private void removeFirstLayoutListener() {
+		if (!firstLayoutListenerAdded) {
+			return;
+		}
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			getViewTreeObserver().removeGlobalOnLayoutListener(firstLayoutListener);
+		} else {
+			getViewTreeObserver().removeOnGlobalLayoutListener(firstLayoutListener);
+		}
+		firstLayoutListenerAdded = false;
+	}
+
+	/**
+	 * Rebinds the tabs of pages whose content changed, the other tabs are left alone.
+	 */
+	private void updateTabRange(int start, int count) {
+		if (windowed || start < 0 || start + count > tabCount || tabPager.getCount() != tabCount) {
+			notifyDataSetChanged();
+			return;
+		}
+
+		beginTraceSection("PSTS.updateTabs");
+		try {
+			clearTabEmphasis();
+			releasePinnedTabWidths();
+			prepareTabTextColorSteps();
+
+			Object provider = getTabProvider();
+			for (int i = start; i < start + count; i++) {
+				if (releasedTabs != null && releasedTabs[i]) {
+					// rebuilt from the adapter when it is scrolled into view again
+					continue;
+				}
+				View tab = tabsContainer.getChildAt(i);
+				if (provider instanceof IconTabProvider) {
+					((ImageView) tab).setImageResource(((IconTabProvider) provider).getPageIconResId(i));
+				} else if (provider instanceof DrawableTabProvider) {
+					((ImageView) tab).setImageDrawable(((DrawableTabProvider) provider).getPageDrawable(i));
+				} else if (provider instanceof ViewTabProvider || provider instanceof AsyncViewTabProvider) {
+					tabsContainer.removeViewAt(i);
+					addTabFor(i);
+					tab = tabsContainer.getChildAt(i);
+				} else {
+					((TextView) tab).setText(getPageTitle(i));
+				}
+				appliedTabTextColorSteps[i] = -1;
+				styleTab(i, tab);
+			}
+
+			if (badgeTexts != null) {
+				for (int i = start; i < start + count; i++) {
+					setBadgeText(i, ((BadgeProvider) provider).getPageBadge(i));
+				}
+			}
+
+			syncToCurrentPage();
+		} finally {
+			endTraceSection();
+		}
+	}
+
+	/**
+	 * Adds tabs for inserted pages without touching the existing tabs.
+	 */
+	private void insertTabRange(int start, int count) {
+		if (windowed || start < 0 || start > tabCount || tabPager.getCount() != tabCount + count || releasedTabCount > 0
+				|| getTabProvider() instanceof AsyncViewTabProvider) {
+			notifyDataSetChanged();
+			return;
+		}
+
+		beginTraceSection("PSTS.insertTabs");
+		try {
+			clearTabEmphasis();
+			releasePinnedTabWidths();
+
+			tabCount += count;
+			// no tab is released here, drop the flags sized for the old tab count
+			releasedTabs = null;
+			appliedTabTextColorSteps = null;
+			prepareTabTextColorSteps();
+			for (int i = start; i < start + count; i++) {
+				addTabFor(i);
+				styleTab(i, tabsContainer.getChildAt(i));
+			}
+			insertBadges(start, count);
+
+			syncToCurrentPage();
+		} finally {
+			endTraceSection();
+		}
+	}
+
+	/**
+	 * Removes the tabs of removed pages without touching the remaining tabs.
+	 */
+	private void removeTabRange(int start, int count) {
+		if (windowed || start < 0 || start + count > tabCount || tabPager.getCount() != tabCount - count || releasedTabCount > 0
+				|| getTabProvider() instanceof AsyncViewTabProvider) {
+			notifyDataSetChanged();
+			return;
+		}
+
+		beginTraceSection("PSTS.removeTabs");
+		try {
+			clearTabEmphasis();
+			releasePinnedTabWidths();
+
+			tabsContainer.removeViews(start, count);
+			tabCount -= count;
+			releasedTabs = null;
+			appliedTabTextColorSteps = null;
+			prepareTabTextColorSteps();
+			removeBadges(start, count);
+
+			syncToCurrentPage();
+		} finally {
+			endTraceSection();
+		}
+	}
 
-		tabCount = pager.getAdapter().getCount();
+	/**
+	 * Selects the tab of the current page of the pager and scrolls to it, after changes the page listener did not
+	 * see.
+	 */
+	private void syncToCurrentPage() {
+		int page = tabPager.getCurrentItem();
+		if (windowed && (pageToTab(page) < 0 || pageToTab(page) >= tabCount)) {
+			windowCenterPage = page;
+			notifyDataSetChanged();
+			return;
+		}
+		clearTabEmphasis();
+		selectedPage = page;
+		currentPosition = clampTab(pageToTab(page));
+		currentPositionOffset = 0f;
+		updateTabEmphasis();
+		notifyTabStateChanged(currentPosition);
+		// the tab extents are only valid again after the next layout pass
+		post(scrollToCurrentTab);
+		invalidate();
+	}
 
+	/**
+	 * Requests the views of all placeholder tabs from the {@link AsyncViewTabProvider}, the ones closest to the given
+	 * position first.
+	 */
+	private void startTabInflation(int focus) {
+		Object provider = getTabProvider();
+		if (!(provider instanceof AsyncViewTabProvider)) {
+			return;
+		}
+		if (tabInflater == null) {
+			tabInflater = new TabInflater(getContext(), (AsyncViewTabProvider) provider, windowStart, tabCount, new TabInflater.Callback() {
+				@Override
+				public void onTabInflated(int position, View view) {
+					attachInflatedTab(position, view);
+				}
+			});
+		}
+		tabInflater.setFocus(focus);
 		for (int i = 0; i < tabCount; i++) {
+			if (tabsContainer.getChildAt(i) instanceof TabPlaceholder && (releasedTabs == null || !releasedTabs[i])) {
+				tabInflater.request(i);
+			}
+		}
+	}
 
-			if(this.pager.getAdapter() instanceof PagerSlidingTabStrip.IconTabProvider) {
-				this.addIconTab(i, ((PagerSlidingTabStrip.IconTabProvider)this.pager.getAdapter()).getPageIconResId(i));
-			} else if(this.pager.getAdapter() instanceof PagerSlidingTabStrip.DrawableTabProvider) {
-				this.addIconTab(i, ((PagerSlidingTabStrip.DrawableTabProvider)this.pager.getAdapter()).getPageDrawable(i));
-			} else if(this.pager.getAdapter() instanceof PagerSlidingTabStrip.ViewTabProvider) {
-				this.addTab(i, ((PagerSlidingTabStrip.ViewTabProvider)this.pager.getAdapter()).getPageView(i));
-			} else {
-				this.addTextTab(i, this.pager.getAdapter().getPageTitle(i).toString());
+	private void cancelTabInflation() {
+		if (tabInflater != null) {
+			tabInflater.cancel();
+			tabInflater = null;
+		}
+	}
+
+	private void attachInflatedTab(int position, View view) {
+		if (position >= tabCount || (releasedTabs != null && releasedTabs[position])) {
+			return;
+		}
+		View placeholder = tabsContainer.getChildAt(position);
+		if (!(placeholder instanceof TabPlaceholder)) {
+			return;
+		}
+
+		ViewGroup.LayoutParams params = placeholder.getLayoutParams();
+		tabsContainer.removeViewAt(position);
+		addTab(position, view);
+		view.setLayoutParams(params);
+		bindTabState(position, view);
+	}
+
+	/**
+	 * Styles a tab that was created or restored after the strip was built, emphasizes it and reports its state,
+	 * like the other tabs after {@link #notifyDataSetChanged()}.
+	 */
+	private void bindTabState(int position, View view) {
+		if (appliedTabTextColorSteps != null) {
+			appliedTabTextColorSteps[position] = -1;
+		}
+		styleTab(position, view);
+
+		if (position == emphasizedTab || position == emphasizedNextTab) {
+			emphasizedTab = -1;
+			emphasizedNextTab = -1;
+			updateTabEmphasis();
+		}
+		if (onTabStateChangeListener != null) {
+			counters.tabStateCallbacks++;
+			onTabStateChangeListener.onTabStateChange(view, tabToPage(position), position == currentPosition);
+		}
+	}
+
+	private boolean hasCustomTabViews() {
+		Object provider = getTabProvider();
+		return provider instanceof ViewTabProvider || provider instanceof AsyncViewTabProvider;
+	}
+
+	private void clearTabEmphasis() {
+		if (emphasizedTab != -1) {
+			applyTabEmphasis(emphasizedTab, 0f);
+		}
+		if (emphasizedNextTab != -1) {
+			applyTabEmphasis(emphasizedNextTab, 0f);
+		}
+		emphasizedTab = -1;
+		emphasizedNextTab = -1;
+	}
+
+	/**
+	 * Adds the tab at the given index of the tab container, for the page at that index of the tab window.
+	 */
+	private void addTabFor(int position) {
+		Object provider = getTabProvider();
+		int page = tabToPage(position);
+		if (provider instanceof TabModelPager) {
+			addTab(position, createModelTab(((TabModelPager) provider).getModel().get(page)));
+		} else if (provider instanceof PagerSlidingTabStrip.IconTabProvider) {
+			addIconTab(position, ((PagerSlidingTabStrip.IconTabProvider) provider).getPageIconResId(page));
+		} else if (provider instanceof PagerSlidingTabStrip.DrawableTabProvider) {
+			addIconTab(position, ((PagerSlidingTabStrip.DrawableTabProvider) provider).getPageDrawable(page));
+		} else if (provider instanceof PagerSlidingTabStrip.ViewTabProvider) {
+			addTab(position, ((PagerSlidingTabStrip.ViewTabProvider) provider).getPageView(page));
+		} else if (provider instanceof PagerSlidingTabStrip.AsyncViewTabProvider) {
+			addTab(position, new TabPlaceholder(getContext(), getEstimatedTabWidth()));
+			if (tabInflater != null) {
+				tabInflater.request(position);
 			}
+		} else {
+			addTextTab(position, getPageTitle(page));
+		}
+	}
+
+	private int tabToPage(int tab) {
+		return tab + windowStart;
+	}
+
+	private int pageToTab(int page) {
+		return page - windowStart;
+	}
+
+	private int clampTab(int tab) {
+		return tabCount > 0 ? Math.max(0, Math.min(tab, tabCount - 1)) : 0;
+	}
 
+	/**
+	 * Moves the window of tabs shown with {@code pstsMaxTabs} if the page is outside of it or next to its edge, so
+	 * the tabs around the current page slide in and out.
+	 */
+	private void updateTabWindow(int page) {
+		if (!windowed) {
+			return;
 		}
+		int tab = pageToTab(page);
+		boolean hiddenBefore = windowStart > 0;
+		boolean hiddenAfter = windowStart + tabCount < tabPager.getCount();
+		if ((tab < 1 && hiddenBefore) || (tab > tabCount - 2 && hiddenAfter)) {
+			moveTabWindow(page);
+		}
+	}
 
-		updateTabStyles();
+	/**
+	 * Centers the tab window on the page. Like a range removal and insertion, only the tabs leaving and entering the
+	 * window are removed and added, the tabs staying in the window keep their views and stay where they are on
+	 * screen. The cost depends on the window size, not on the number of pages.
+	 */
+	private void moveTabWindow(int page) {
+		int start = Math.max(0, Math.min(page - maxTabs / 2, tabPager.getCount() - tabCount));
+		int shift = start - windowStart;
+		if (shift == 0) {
+			return;
+		}
+		int count = Math.abs(shift);
+		if (count >= tabCount || releasedTabCount > 0 || getTabProvider() instanceof AsyncViewTabProvider) {
+			windowCenterPage = page;
+			notifyDataSetChanged();
+			return;
+		}
 
-		getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+		beginTraceSection("PSTS.moveTabWindow");
+		try {
+			clearTabEmphasis();
+			releasePinnedTabWidths();
+			releasedTabs = null;
+			tabExtents.setCount(0);
+
+			int kept = tabCount - count;
+			int firstKept = shift > 0 ? count : 0;
+			int firstEntering = shift > 0 ? kept : 0;
+
+			// keeps the staying tabs in place on screen, see onLayout()
+			windowAnchorTab = tabsContainer.getChildAt(firstKept);
+			windowAnchorLeft = windowAnchorTab.getLeft();
+			windowAnchorScrollX = getScrollX();
+
+			tabsContainer.removeViews(shift > 0 ? 0 : kept, count);
+			windowStart = start;
+			currentPosition = clampTab(pageToTab(page));
+			currentPositionOffset = 0f;
+
+			if (appliedTabTextColorSteps != null) {
+				int[] applied = new int[tabCount];
+				Arrays.fill(applied, -1);
+				System.arraycopy(appliedTabTextColorSteps, firstKept, applied, shift > 0 ? 0 : count, kept);
+				appliedTabTextColorSteps = applied;
+			}
+			prepareTabTextColorSteps();
+
+			for (int i = firstEntering; i < firstEntering + count; i++) {
+				addTabFor(i);
+				bindTabState(i, tabsContainer.getChildAt(i));
+			}
+			shiftBadges(shift);
+			updateTabEmphasis();
+		} finally {
+			endTraceSection();
+		}
+	}
 
-			@SuppressWarnings("deprecation")
-			@SuppressLint("NewApi")
+	/**
+	 * Adds the tab after the tab window that opens a chooser for all pages.
+	 */
+	private void addOverflowTab() {
+		int hiddenCount = tabPager.getCount() - tabCount;
+		overflowTab = new TextView(getContext());
+		overflowTab.setText(R.string.psts_overflow_tab);
+		overflowTab.setContentDescription(getResources().getQuantityString(R.plurals.psts_overflow_tab_description, hiddenCount, hiddenCount));
+		overflowTab.setGravity(Gravity.CENTER);
+		overflowTab.setSingleLine();
+		overflowTab.setFocusable(true);
+		overflowTab.setPadding(tabPadding, 0, tabPadding, 0);
+		overflowTab.setOnClickListener(new OnClickListener() {
 			@Override
-			public void onGlobalLayout() {
+			public void onClick(View v) {
+				showOverflowChooser();
+			}
+		});
+		tabsContainer.addView(overflowTab, defaultTabLayoutParams);
+	}
 
-				if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
-					getViewTreeObserver().removeGlobalOnLayoutListener(this);
-				} else {
-					getViewTreeObserver().removeOnGlobalLayoutListener(this);
-				}
-				currentPosition = pager.getCurrentItem();
-				scrollToChild(currentPosition, 0);
-				notifyTabStateChanged(currentPosition);
+	private void styleOverflowTab() {
+		if (tabBackgroundResId > 0 && !sharedTabBackground) {
+			overflowTab.setBackgroundResource(tabBackgroundResId);
+		}
+		overflowTab.setTextSize(TypedValue.COMPLEX_UNIT_PX, tabTextSize);
+		overflowTab.setTypeface(tabTypeface, tabTypefaceStyle);
+		overflowTab.setTextColor(tabTextColorSteps[0]);
+	}
+
+	/**
+	 * Shows all pages in a list anchored to the overflow tab, opened at the current page. Before Honeycomb, which has
+	 * no {@link ListPopupWindow}, the overflow tab moves to the first page after the tab window instead.
+	 */
+	@SuppressLint("NewApi")
+	private void showOverflowChooser() {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+			tabPager.setCurrentItem(Math.min(windowStart + tabCount, tabPager.getCount() - 1), false);
+			return;
+		}
+
+		dismissOverflowChooser();
+		overflowChooser = new ListPopupWindow(getContext());
+		overflowChooser.setAnchorView(overflowTab);
+		overflowChooser.setModal(true);
+		overflowChooser.setContentWidth(Math.max(getWidth() / 2, overflowTab.getWidth()));
+		overflowChooser.setAdapter(new OverflowAdapter());
+		overflowChooser.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+			@Override
+			public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+				dismissOverflowChooser();
+				tabPager.setCurrentItem(position, false);
 			}
 		});
+		overflowChooser.show();
+		overflowChooser.setSelection(tabPager.getCurrentItem());
+	}
+
+	@SuppressLint("NewApi")
+	private void dismissOverflowChooser() {
+		if (overflowChooser != null) {
+			overflowChooser.dismiss();
+			overflowChooser = null;
+		}
+	}
+
+	/**
+	 * @param position the page, not the index in the tab window
+	 */
+	private String getPageTitle(int position) {
+		counters.pageTitleQueries++;
+		CharSequence title = tabPager.getPageTitle(position);
+		return title != null ? title.toString() : "";
 	}
 
 	private void addTextTab(final int position, String title) {
@@ -324,214 +1191,1456 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 
 	private void addTab(final int position, View tab) {
 		tab.setFocusable(true);
+		// the position is looked up on click, tabs move when pages are inserted or removed
 		tab.setOnClickListener(new OnClickListener() {
 			@Override
 			public void onClick(View v) {
+				int position = tabsContainer.indexOfChild(v);
+				if (position < 0) {
+					return;
+				}
+				position = tabToPage(position);
 				if(PagerSlidingTabStrip.this.onTabClickListener != null) {
 					PagerSlidingTabStrip.this.onTabClickListener.onTabClick(v, position);
 				}
-				pager.setCurrentItem(position);
+				tabPager.setCurrentItem(position, true);
 			}
 		});
 
 		tab.setPadding(tabPadding, 0, tabPadding, 0);
 		tab.setOnLongClickListener(new OnLongClickListener() {
 			public boolean onLongClick(View v) {
-				return PagerSlidingTabStrip.this.onTabLongClickListener != null && PagerSlidingTabStrip.this.onTabLongClickListener.onTabLongClick(v, position);
+				int position = tabsContainer.indexOfChild(v);
+				return position >= 0 && PagerSlidingTabStrip.this.onTabLongClickListener != null && PagerSlidingTabStrip.this.onTabLongClickListener.onTabLongClick(v, tabToPage(position));
 			}
 		});
 		tabsContainer.addView(tab, position, shouldExpand ? expandedTabLayoutParams : defaultTabLayoutParams);
+		counters.tabViewsCreated++;
 	}
 
-	public View getTabView(int position) {
-		return this.tabsContainer.getChildAt(position);
-	}
+	/**
+	 * Applies the tab metrics restored from a saved state if they were recorded for the same titles and style. The
+	 * tabs get their previous widths as exact layout params, so they are not measured against their content again,
+	 * and the previous scroll position is applied in the first layout pass.
+	 */
+	private void applyRestoredTabMetrics() {
+		if (restoredTabWidths == null || tabCount == 0) {
+			return;
+		}
 
-	private void updateTabStyles() {
+		int[] widths = restoredTabWidths;
+		restoredTabWidths = null;
 
-		for (int i = 0; i < tabCount; i++) {
+		if (widths.length != tabCount || restoredContentHash != computeContentHash()) {
+			return;
+		}
 
-			View v = tabsContainer.getChildAt(i);
-			if (tabBackgroundResId > 0) {
-				// FIXME 4.1手机上setBackGround后有可能导致padding丢失
-				v.setBackgroundResource(tabBackgroundResId);
+		if (!shouldExpand) {
+			for (int i = 0; i < tabCount; i++) {
+				tabsContainer.getChildAt(i).setLayoutParams(new LinearLayout.LayoutParams(widths[i], LayoutParams.MATCH_PARENT));
 			}
+			tabWidthsPinned = true;
+		}
 
-			if (!(pager.getAdapter() instanceof ViewTabProvider) && v instanceof TextView) {
+		pendingScrollX = restoredScrollX;
+		skipInitialScroll = true;
+		requestLayout();
+	}
 
-				TextView tab = (TextView) v;
-				tab.setTextSize(TypedValue.COMPLEX_UNIT_PX, tabTextSize);
-				tab.setTypeface(tabTypeface, tabTypefaceStyle);
-				tab.setTextColor(tabTextColor);
+	/**
+	 * Gives the tabs back their regular layout params once a style change makes the restored widths stale.
+	 */
+	private void releasePinnedTabWidths() {
+		if (!tabWidthsPinned) {
+			return;
+		}
+		tabWidthsPinned = false;
+		for (int i = 0; i < tabCount; i++) {
+			tabsContainer.getChildAt(i).setLayoutParams(shouldExpand ? expandedTabLayoutParams : defaultTabLayoutParams);
+		}
+	}
 
-				// setAllCaps() is only available from API 14, so the upper case is made manually if we are on a
-				// pre-ICS-build
-				if (textAllCaps) {
-					if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-						tab.setAllCaps(true);
-					} else {
-						tab.setText(tab.getText().toString().toUpperCase(locale));
-					}
+	/**
+	 * Hashes everything that influences the width of the tabs: the titles or icon resources and the text style.
+	 * Drawables and custom views cannot be hashed, for {@link DrawableTabProvider}, {@link ViewTabProvider} and
+	 * {@link AsyncViewTabProvider} only the page count and the provider class are covered. Only used for the tab
+	 * metrics saved with the instance state.
+	 */
+	private int computeContentHash() {
+		int hash = 0;
+		if (tabPager != null) {
+			Object provider = tabPager.getTabProvider();
+			int count = tabPager.getCount();
+			hash = count;
+			if (provider instanceof IconTabProvider) {
+				for (int i = 0; i < count; i++) {
+					hash = 31 * hash + ((IconTabProvider) provider).getPageIconResId(i);
+				}
+			} else if (provider instanceof DrawableTabProvider || provider instanceof ViewTabProvider
+					|| provider instanceof AsyncViewTabProvider) {
+				hash = 31 * hash + provider.getClass().getName().hashCode();
+			} else {
+				for (int i = 0; i < count; i++) {
+					counters.pageTitleQueries++;
+					CharSequence title = tabPager.getPageTitle(i);
+					hash = 31 * hash + (title != null ? title.toString().hashCode() : 0);
 				}
 			}
 		}
+		hash = 31 * hash + tabTextSize;
+		// the typeface itself has an identity hash that changes with the process, its asset path does not
+		hash = 31 * hash + (fontPath != null ? fontPath.hashCode() : 0);
+		hash = 31 * hash + tabTypefaceStyle;
+		hash = 31 * hash + tabPadding;
+		hash = 31 * hash + (textAllCaps ? 1 : 0);
+		hash = 31 * hash + (shouldExpand ? 1 : 0);
+		return hash;
+	}
 
+	@VisibleForTesting
+	StripCounters getCounters() {
+		return counters;
 	}
 
-	private void notifyTabStateChanged(int selectPosition) {
-		for (int i = 0; i < tabCount; i++) {
+	/**
+	 * Enables timing of rebuilds, style updates and drawing. Counters are always kept, durations are only measured
+	 * while enabled or while a {@link StripMetricsListener} is set.
+	 */
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	public boolean isMetricsEnabled() {
+		return metricsEnabled || stripMetricsListener != null;
+	}
+
+	/**
+	 * @return a snapshot of the work done by the strip since it was created or the metrics were reset
+	 */
+	public StripMetrics getMetrics() {
+		return new StripMetrics(counters);
+	}
+
+	public void resetMetrics() {
+		counters.reset();
+	}
+
+	/**
+	 * Records all page change events the strip receives into the given trace, or stops recording if null. Meant for
+	 * debug builds, to capture real user interaction for {@link PageEventTrace#replay}.
+	 */
+	public void setPageEventTrace(PageEventTrace trace) {
+		this.pageEventTrace = trace;
+	}
+
+	TabPager.Callback getPagerCallback() {
+		return pagerCallback;
+	}
+
+	/**
+	 * @return the tab of the page, or null if it is outside of the tab window
+	 */
+	public View getTabView(int position) {
+		int tab = pageToTab(position);
+		return tab >= 0 && tab < tabCount ? this.tabsContainer.getChildAt(tab) : null;
+	}
+
+	private void updateTabStyles() {
+		beginTraceSection("PSTS.updateTabStyles");
+		try {
+			final boolean timed = isMetricsEnabled();
+			final long start = timed ? System.nanoTime() : 0;
+
+			applyTabStyles();
+
+			if (timed) {
+				long duration = System.nanoTime() - start;
+				counters.lastTabStylesNanos = duration;
+				if (stripMetricsListener != null) {
+					stripMetricsListener.onTabStylesUpdated(duration);
+				}
+			}
+		} finally {
+			endTraceSection();
+		}
+	}
+
+	private void applyTabStyles() {
+
+		prepareTabTextColorSteps();
+
+		for (int i = 0; i < tabCount; i++) {
+			styleTab(i, tabsContainer.getChildAt(i));
+		}
+		if (overflowTab != null) {
+			styleOverflowTab();
+		}
+
+		if (hasTabEmphasis() || tabEmphasisApplied) {
+			// restyling reset the text colors, emphasize the current tabs again or reset them once emphasis is off
+			for (int i = 0; i < tabCount; i++) {
+				applyTabEmphasis(i, 0f);
+			}
+			emphasizedTab = -1;
+			emphasizedNextTab = -1;
+			tabEmphasisApplied = false;
+			updateTabEmphasis();
+		}
+	}
+
+	private void prepareTabTextColorSteps() {
+		if (tabTextColorSteps == null) {
+			tabTextColorSteps = buildTabTextColorSteps();
+		}
+		if (appliedTabTextColorSteps == null || appliedTabTextColorSteps.length != tabCount) {
+			appliedTabTextColorSteps = new int[tabCount];
+			Arrays.fill(appliedTabTextColorSteps, -1);
+		}
+	}
+
+	private void styleTab(int position, View v) {
+		counters.tabsStyled++;
+		if (tabBackgroundResId > 0) {
+			if (sharedTabBackground) {
+				// drawn by the strip, see drawSharedTabBackground()
+				ViewCompat.setBackground(v, null);
+			} else {
+				// FIXME 4.1手机上setBackGround后有可能导致padding丢失
+				v.setBackgroundResource(tabBackgroundResId);
+			}
+		}
+
+		if (!hasCustomTabViews() && v instanceof TextView) {
+
+			TextView tab = (TextView) v;
+			tab.setTextSize(TypedValue.COMPLEX_UNIT_PX, tabTextSize);
+			tab.setTypeface(tabTypeface, tabTypefaceStyle);
+			setTabTextColorStep(position, tab, 0);
+
+			// setAllCaps() is only available from API 14, so the upper case is made manually if we are on a
+			// pre-ICS-build
+			if (textAllCaps) {
+				if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+					tab.setAllCaps(true);
+				} else {
+					tab.setText(tab.getText().toString().toUpperCase(locale));
+				}
+			}
+		}
+	}
+
+	private boolean hasTabEmphasis() {
+		return hasSelectedTabTextColor || selectedTabTextScale != 1f || selectedTabAlpha != 1f || unselectedTabAlpha != 1f;
+	}
+
+	/**
+	 * Emphasizes the current tab and the one the pager is scrolling to, according to the scroll offset. Only scale,
+	 * alpha and text color are touched, so this never triggers a layout pass. Tabs that were emphasized before are
+	 * reset, which keeps the work per frame independent of the number of tabs.
+	 */
+	private void updateTabEmphasis() {
+		if (!hasTabEmphasis() || tabCount == 0) {
+			return;
+		}
+		tabEmphasisApplied = true;
+
+		int current = Math.min(currentPosition, tabCount - 1);
+		int next = currentPositionOffset > 0f && current < tabCount - 1 ? current + 1 : -1;
+
+		if (emphasizedTab != -1 && emphasizedTab != current && emphasizedTab != next) {
+			applyTabEmphasis(emphasizedTab, 0f);
+		}
+		if (emphasizedNextTab != -1 && emphasizedNextTab != current && emphasizedNextTab != next) {
+			applyTabEmphasis(emphasizedNextTab, 0f);
+		}
+
+		applyTabEmphasis(current, 1f - currentPositionOffset);
+		if (next != -1) {
+			applyTabEmphasis(next, currentPositionOffset);
+		}
+
+		emphasizedTab = current;
+		emphasizedNextTab = next;
+	}
+
+	/**
+	 * @param fraction 1 for the selected state, 0 for the unselected state
+	 */
+	private void applyTabEmphasis(int position, float fraction) {
+		View v = tabsContainer.getChildAt(position);
+		if (v == null) {
+			return;
+		}
+
+		float scale = 1f + (selectedTabTextScale - 1f) * fraction;
+		ViewCompat.setScaleX(v, scale);
+		ViewCompat.setScaleY(v, scale);
+		ViewCompat.setAlpha(v, unselectedTabAlpha + (selectedTabAlpha - unselectedTabAlpha) * fraction);
+
+		if (hasSelectedTabTextColor && !hasCustomTabViews() && v instanceof TextView) {
+			setTabTextColorStep(position, (TextView) v, Math.round(fraction * (TEXT_COLOR_STEPS - 1)));
+		}
+	}
+
+	/**
+	 * Sets one of the precomputed text colors on a tab, unless the tab already shows it. Colors are quantized to
+	 * {@link #TEXT_COLOR_STEPS} steps, so most scroll frames end up without any call into the TextView.
+	 */
+	private void setTabTextColorStep(int position, TextView tab, int step) {
+		if (step >= tabTextColorSteps.length) {
+			step = tabTextColorSteps.length - 1;
+		}
+		if (appliedTabTextColorSteps[position] == step) {
+			return;
+		}
+		appliedTabTextColorSteps[position] = step;
+		tab.setTextColor(tabTextColorSteps[step]);
+	}
+
+	/**
+	 * Builds the text colors between the unselected (first) and selected (last) tab color once, instead of
+	 * creating a new color state list for every tab on every frame.
+	 */
+	private ColorStateList[] buildTabTextColorSteps() {
+		if (!hasSelectedTabTextColor) {
+			return new ColorStateList[] { ColorStateList.valueOf(tabTextColor) };
+		}
+		ColorStateList[] steps = new ColorStateList[TEXT_COLOR_STEPS];
+		for (int i = 0; i < TEXT_COLOR_STEPS; i++) {
+			steps[i] = ColorStateList.valueOf(interpolateColor(tabTextColor, selectedTabTextColor, i / (float) (TEXT_COLOR_STEPS - 1)));
+		}
+		return steps;
+	}
+
+	private void invalidateTabTextColors() {
+		tabTextColorSteps = null;
+		if (appliedTabTextColorSteps != null) {
+			Arrays.fill(appliedTabTextColorSteps, -1);
+		}
+	}
+
+	private static int interpolateColor(int from, int to, float fraction) {
+		int a = (int) (Color.alpha(from) + (Color.alpha(to) - Color.alpha(from)) * fraction);
+		int r = (int) (Color.red(from) + (Color.red(to) - Color.red(from)) * fraction);
+		int g = (int) (Color.green(from) + (Color.green(to) - Color.green(from)) * fraction);
+		int b = (int) (Color.blue(from) + (Color.blue(to) - Color.blue(from)) * fraction);
+		return Color.argb(a, r, g, b);
+	}
+
+	private void notifyTabStateChanged(int selectPosition) {
+		if (sharedTabBackground && selectedTab != selectPosition) {
+			selectedTab = selectPosition;
+			if (!tabPressed) {
+				releasePressedTab();
+			}
+			invalidate();
+		}
+		for (int i = 0; i < tabCount; i++) {
 			View v = tabsContainer.getChildAt(i);
 			if (onTabStateChangeListener != null) {
-				onTabStateChangeListener.onTabStateChange(v, i, i == selectPosition);
+				counters.tabStateCallbacks++;
+				onTabStateChangeListener.onTabStateChange(v, tabToPage(i), i == selectPosition);
+			}
+		}
+	}
+
+	private void scrollToChild(int position, int offset) {
+
+		if (tabCount == 0) {
+			return;
+		}
+
+		int newScrollX = TabGeometry.scrollTarget(tabsContainer.getChildAt(position).getLeft(), position, offset, scrollOffset);
+
+		if (newScrollX != lastScrollX) {
+			lastScrollX = newScrollX;
+			scrollTo(newScrollX, 0);
+			counters.scrollUpdatesApplied++;
+		} else {
+			counters.scrollUpdatesSkipped++;
+		}
+
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+		// null while the View constructor runs
+		if (counters != null) {
+			counters.invalidates++;
+		}
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+		counters.measurePasses++;
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		super.onLayout(changed, l, t, r, b);
+		counters.layoutPasses++;
+
+		updateTabExtents();
+
+		if (pendingScrollX >= 0) {
+			lastScrollX = pendingScrollX;
+			scrollTo(pendingScrollX, 0);
+			pendingScrollX = -1;
+		}
+
+		if (windowAnchorTab != null) {
+			// the tab window moved, scroll by as much as the staying tabs moved
+			int scrollX = windowAnchorScrollX + windowAnchorTab.getLeft() - windowAnchorLeft;
+			windowAnchorTab = null;
+			lastScrollX = -1;
+			scrollTo(scrollX, 0);
+		}
+	}
+
+	private void updateTabExtents() {
+		int count = Math.min(tabCount, tabsContainer.getChildCount());
+		tabExtents.setCount(count);
+		long createdWidth = 0;
+		int createdCount = 0;
+		for (int i = 0; i < count; i++) {
+			View tab = tabsContainer.getChildAt(i);
+			tabExtents.set(i, tab.getLeft(), tab.getRight());
+			if (!(tab instanceof TabPlaceholder)) {
+				createdWidth += tab.getWidth();
+				createdCount++;
 			}
 		}
+		if (createdCount > 0) {
+			measuredTabWidth = (int) (createdWidth / createdCount);
+		}
+	}
+
+	/**
+	 * @return the average width of the tabs laid out so far, or room for a short title before the first layout
+	 */
+	private int getEstimatedTabWidth() {
+		return measuredTabWidth > 0 ? measuredTabWidth : 2 * tabPadding + 4 * tabTextSize;
+	}
+
+	protected int getIndicatorLeft(View tabView) {
+		return TabGeometry.indicatorLeft(tabView.getLeft(), tabView.getWidth(), getIndicatorWidth(), getPaddingLeft(), indicatorOffset);
+	}
+
+	protected int getIndicatorRight(View tabView) {
+		return TabGeometry.indicatorRight(tabView.getRight(), tabView.getWidth(), getIndicatorWidth(), getPaddingLeft(), indicatorOffset);
+	}
+
+	/**
+	 * @return the width of the indicator, or 0 if it spans the whole tab
+	 */
+	private int getIndicatorWidth() {
+		return customIndicator != null ? customIndicator.getWidth() : fixedIndicatorWidth;
+	}
+
+	/**
+	 * Renders the tabs into a hardware layer while the pager is dragged or settling, so scrolling the strip only
+	 * recomposites the layer. Strips larger than the maximum texture size are left alone, the layer would fail to
+	 * allocate and fall back to software rendering anyway.
+	 */
+	private void promoteTabsLayer() {
+		if (!hardwareLayerOnScroll || tabsLayerPromoted || !isHardwareAcceleratedCompat()) {
+			return;
+		}
+		if (tabsContainer.getWidth() > maxHardwareLayerWidth || tabsContainer.getHeight() > maxHardwareLayerHeight) {
+			return;
+		}
+		ViewCompat.setLayerType(tabsContainer, ViewCompat.LAYER_TYPE_HARDWARE, null);
+		tabsLayerPromoted = true;
+		counters.layerPromotions++;
+		layerPromotionCount++;
+	}
+
+	private void demoteTabsLayer() {
+		if (!tabsLayerPromoted) {
+			return;
+		}
+		ViewCompat.setLayerType(tabsContainer, ViewCompat.LAYER_TYPE_NONE, null);
+		tabsLayerPromoted = false;
+	}
+
+	@SuppressLint("NewApi")
+	private boolean isHardwareAcceleratedCompat() {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && isHardwareAccelerated();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH && trimMemoryCallbacks != null) {
+			getContext().getApplicationContext().unregisterComponentCallbacks(trimMemoryCallbacks);
+		}
+		demoteTabsLayer();
+		cancelTabInflation();
+		removeFirstLayoutListener();
+		removeCallbacks(scrollToCurrentTab);
+		removeCallbacks(startScrubOnLongPress);
+		removeCallbacks(restoreReleasedTabs);
+		restoreTabsPending = false;
+		if (tabPager != null && pagerCallbackRegistered) {
+			unregisterPagerCallback();
+			// only records data set changes, the pager may outlive the strip and must not keep it reachable
+			detachedPagerCallback.dataSetChanged = false;
+			tabPager.registerCallback(detachedPagerCallback);
+		}
+		super.onDetachedFromWindow();
+	}
+
+	@SuppressLint("NewApi")
+	@Override
+	protected void onDraw(Canvas canvas) {
+		super.onDraw(canvas);
+
+		if (hardwareLayerOnScroll && !maxTextureSizeRead && Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH
+				&& canvas.isHardwareAccelerated()) {
+			// the layer has to fit into a single texture, its maximum size does not change
+			maxTextureSizeRead = true;
+			maxHardwareLayerWidth = Math.min(maxHardwareLayerWidth, canvas.getMaximumBitmapWidth());
+			maxHardwareLayerHeight = Math.min(maxHardwareLayerHeight, canvas.getMaximumBitmapHeight());
+		}
+
+		if (isInEditMode() || tabCount == 0) {
+			return;
+		}
+
+		if (sharedTabBackground) {
+			drawSharedTabBackground(canvas);
+		}
+
+		drawIndicator(canvas);
+
+		drawUnderline(canvas);
+
+		drawDivider(canvas);
+	}
+
+	/**
+	 * Times the whole strip: the indicator, underline and dividers of {@link #onDraw}, the tabs, and the badges and
+	 * scrubber of {@link #dispatchDraw}.
+	 */
+	@Override
+	public void draw(Canvas canvas) {
+		beginTraceSection("PSTS.draw");
+		final boolean timed = isMetricsEnabled();
+		final long start = timed ? System.nanoTime() : 0;
+		try {
+			super.draw(canvas);
+		} finally {
+			endTraceSection();
+		}
+
+		counters.draws++;
+		if (timed) {
+			long duration = System.nanoTime() - start;
+			counters.lastDrawNanos = duration;
+			counters.totalDrawNanos += duration;
+			if (stripMetricsListener != null) {
+				stripMetricsListener.onDraw(duration);
+			}
+		}
+	}
+
+	/**
+	 * Wraps the main phases of the strip in {@link Trace} sections, so they show up in systrace and Perfetto
+	 * captures. Sections must be ended on the same thread in the reverse order they were begun.
+	 */
+	@SuppressLint("NewApi")
+	private static void beginTraceSection(String name) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.beginSection(name);
+		}
+	}
+
+	@SuppressLint("NewApi")
+	private static void endTraceSection() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.endSection();
+		}
+	}
+
+	protected void drawIndicator(Canvas canvas) {
+		final int height = getHeight();
+
+		// draw indicator line
+
+		rectPaint.setColor(indicatorColor);
+
+		// default: line below current tab
+		View currentTab = tabsContainer.getChildAt(currentPosition);
+		float lineLeft = getIndicatorLeft(currentTab);
+		float lineRight = getIndicatorRight(currentTab);
+
+		// if there is an offset, start interpolating left and right coordinates between current and next tab
+		if (currentPositionOffset > 0f && currentPosition < tabCount - 1) {
+
+			View nextTab = tabsContainer.getChildAt(currentPosition + 1);
+			final float nextTabLeft = getIndicatorLeft(nextTab);
+			final float nextTabRight = getIndicatorRight(nextTab);
+
+			lineLeft = TabGeometry.interpolate(lineLeft, nextTabLeft, currentPositionOffset);
+			lineRight = TabGeometry.interpolate(lineRight, nextTabRight, currentPositionOffset);
+		}
+
+		if (customIndicator != null) {
+			canvas.drawBitmap(customIndicator, lineLeft, height - customIndicator.getHeight() - indicatorPaddingBottom, rectPaint);
+		} else if (customIndicatorId != 0) {
+			// released by trimMemory() and still being decoded
+			return;
+		} else if (indicatorShape != null) {
+			indicatorShape.draw(canvas, rectPaint, indicatorColor, lineLeft, lineRight, height - indicatorPaddingBottom,
+					indicatorHeight, currentPositionOffset == 0f);
+		} else {
+			canvas.drawRect(lineLeft, height - indicatorHeight - indicatorPaddingBottom, lineRight, height - indicatorPaddingBottom, rectPaint);
+		}
+	}
+
+	/**
+	 * @param shape value of the {@code pstsIndicatorShape} attribute
+	 */
+	private static IndicatorShape createIndicatorShape(int shape, int endColor) {
+		switch (shape) {
+			case 1:
+				return IndicatorShape.pill();
+			case 2:
+				return IndicatorShape.triangle();
+			case 3:
+				return IndicatorShape.dot();
+			case 4:
+				return IndicatorShape.gradientLine(endColor);
+			default:
+				return null;
+		}
+	}
+
+	protected void drawUnderline(Canvas canvas) {
+		rectPaint.setColor(underlineColor);
+		canvas.drawRect(0, getHeight() - underlineHeight, tabsContainer.getWidth(), getHeight(), rectPaint);
+	}
+
+	protected void drawDivider(Canvas canvas) {
+		dividerPaint.setColor(dividerColor);
+		if (tabExtents.getCount() == 0) {
+			return;
+		}
+		final int first = tabExtents.firstVisible(getScrollX() - getPaddingLeft());
+		final int last = Math.min(tabExtents.lastVisible(getScrollX() - getPaddingLeft() + getWidth()), tabCount - 2);
+		for (int i = first; i <= last; i++) {
+			View tab = tabsContainer.getChildAt(i);
+			canvas.drawLine(tab.getRight(), dividerPadding, tab.getRight(), getHeight() - dividerPadding, dividerPaint);
+		}
+	}
+
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
+
+		if (isInEditMode()) {
+			return;
+		}
+		if (badgeTexts != null) {
+			drawBadges(canvas);
+		}
+		if (scrubbing) {
+			drawScrubber(canvas);
+		}
+	}
+
+	/**
+	 * Draws the badges on top of the tabs. Only tabs in the visible part of the strip are drawn, using the text
+	 * widths measured when the badge was set.
+	 */
+	protected void drawBadges(Canvas canvas) {
+		if (tabExtents.getCount() == 0) {
+			return;
+		}
+		final int first = tabExtents.firstVisible(getScrollX() - getPaddingLeft());
+		final int last = Math.min(tabExtents.lastVisible(getScrollX() - getPaddingLeft() + getWidth()), badgeTexts.length - 1);
+
+		badgePaint.setColor(badgeColor);
+		badgeTextPaint.setColor(badgeTextColor);
+
+		for (int i = first; i <= last; i++) {
+			if (badgeTexts[i] == null) {
+				continue;
+			}
+			View tab = tabsContainer.getChildAt(i);
+			getBadgeRect(i, tab, badgeRect);
+			float radius = badgeHeight / 2;
+			canvas.drawRoundRect(badgeRect, radius, radius, badgePaint);
+			canvas.drawText(badgeTexts[i], badgeRect.centerX(), badgeRect.top + badgeBaseline, badgeTextPaint);
+		}
+	}
+
+	/**
+	 * Computes the bounds of a badge in the top right corner of its tab, in the coordinates of the strip content.
+	 */
+	private void getBadgeRect(int position, View tab, RectF out) {
+		float width = Math.max(badgeHeight, badgeTextWidths[position] + 2 * badgePadding);
+		float right = getPaddingLeft() + tab.getRight() - badgeMargin;
+		float top = getPaddingTop() + badgeMargin;
+		out.set(right - width, top, right, top + badgeHeight);
+	}
+
+	private void updateBadgeTextMetrics() {
+		badgeTextPaint.setTextSize(badgeTextSize);
+		Paint.FontMetrics fm = badgeTextPaint.getFontMetrics();
+		float textHeight = fm.descent - fm.ascent;
+		badgeHeight = textHeight + badgePadding;
+		badgeBaseline = (badgeHeight - textHeight) / 2 - fm.ascent;
+		if (badgeTexts != null) {
+			for (int i = 0; i < badgeTexts.length; i++) {
+				badgeTextWidths[i] = badgeTexts[i] != null ? badgeTextPaint.measureText(badgeTexts[i]) : 0f;
+			}
+		}
+	}
+
+	/**
+	 * Queries the badges of all pages from the adapter, if it is a {@link BadgeProvider}.
+	 */
+	private void loadBadges() {
+		Object provider = getTabProvider();
+		if (!(provider instanceof BadgeProvider)) {
+			badgeTexts = null;
+			badgeTextWidths = null;
+			return;
+		}
+		badgeTexts = new String[tabCount];
+		badgeTextWidths = new float[tabCount];
+		for (int i = 0; i < tabCount; i++) {
+			setBadgeText(i, ((BadgeProvider) provider).getPageBadge(tabToPage(i)));
+		}
+	}
+
+	/**
+	 * Makes room for the badges of inserted tabs and queries only those, the other badges move along.
+	 */
+	private void insertBadges(int start, int count) {
+		Object provider = getTabProvider();
+		if (!(provider instanceof BadgeProvider) || badgeTexts == null || badgeTexts.length + count != tabCount) {
+			loadBadges();
+			return;
+		}
+		String[] texts = new String[tabCount];
+		float[] widths = new float[tabCount];
+		System.arraycopy(badgeTexts, 0, texts, 0, start);
+		System.arraycopy(badgeTexts, start, texts, start + count, badgeTexts.length - start);
+		System.arraycopy(badgeTextWidths, 0, widths, 0, start);
+		System.arraycopy(badgeTextWidths, start, widths, start + count, badgeTextWidths.length - start);
+		badgeTexts = texts;
+		badgeTextWidths = widths;
+		for (int i = start; i < start + count; i++) {
+			setBadgeText(i, ((BadgeProvider) provider).getPageBadge(tabToPage(i)));
+		}
+	}
+
+	/**
+	 * Moves the badges along with the tab window and queries only the badges of the entering tabs.
+	 */
+	private void shiftBadges(int shift) {
+		Object provider = getTabProvider();
+		if (!(provider instanceof BadgeProvider) || badgeTexts == null || badgeTexts.length != tabCount) {
+			loadBadges();
+			return;
+		}
+		int count = Math.abs(shift);
+		int kept = tabCount - count;
+		String[] texts = new String[tabCount];
+		float[] widths = new float[tabCount];
+		System.arraycopy(badgeTexts, shift > 0 ? count : 0, texts, shift > 0 ? 0 : count, kept);
+		System.arraycopy(badgeTextWidths, shift > 0 ? count : 0, widths, shift > 0 ? 0 : count, kept);
+		badgeTexts = texts;
+		badgeTextWidths = widths;
+		int firstEntering = shift > 0 ? kept : 0;
+		for (int i = firstEntering; i < firstEntering + count; i++) {
+			setBadgeText(i, ((BadgeProvider) provider).getPageBadge(tabToPage(i)));
+		}
+	}
+
+	/**
+	 * Drops the badges of removed tabs without querying the remaining ones again.
+	 */
+	private void removeBadges(int start, int count) {
+		if (!(getTabProvider() instanceof BadgeProvider) || badgeTexts == null || badgeTexts.length - count != tabCount) {
+			loadBadges();
+			return;
+		}
+		String[] texts = new String[tabCount];
+		float[] widths = new float[tabCount];
+		System.arraycopy(badgeTexts, 0, texts, 0, start);
+		System.arraycopy(badgeTexts, start + count, texts, start, tabCount - start);
+		System.arraycopy(badgeTextWidths, 0, widths, 0, start);
+		System.arraycopy(badgeTextWidths, start + count, widths, start, tabCount - start);
+		badgeTexts = texts;
+		badgeTextWidths = widths;
+	}
+
+	private void setBadgeText(int position, CharSequence badge) {
+		String text = badge != null && badge.length() > 0 ? badge.toString() : null;
+		badgeTexts[position] = text;
+		badgeTextWidths[position] = text != null ? badgeTextPaint.measureText(text) : 0f;
+	}
+
+	/**
+	 * Re-queries the badge of a single page from the {@link BadgeProvider} adapter and redraws only the area of that
+	 * badge, the tabs are not rebuilt.
+	 */
+	public void notifyBadgeChanged(int page) {
+		int position = pageToTab(page);
+		if (badgeTexts == null || position < 0 || position >= badgeTexts.length || position >= tabCount) {
+			return;
+		}
+
+		View tab = tabsContainer.getChildAt(position);
+		getBadgeRect(position, tab, badgeRect);
+		float left = badgeRect.left;
+		float right = badgeRect.right;
+
+		setBadgeText(position, ((BadgeProvider) getTabProvider()).getPageBadge(page));
+
+		getBadgeRect(position, tab, badgeRect);
+		invalidate((int) Math.min(left, badgeRect.left) - 1, (int) badgeRect.top - 1,
+				(int) Math.ceil(Math.max(right, badgeRect.right)) + 1, (int) Math.ceil(badgeRect.bottom) + 1);
+	}
+
+	/**
+	 * Loads the state drawables the strip draws behind the selected and the pressed tab. They are two instances of
+	 * the tab background, shared by all tabs.
+	 */
+	private void loadSharedTabBackgrounds() {
+		if (selectedTabBackground != null) {
+			selectedTabBackground.setCallback(null);
+			pressedTabBackground.setCallback(null);
+		}
+		if (!sharedTabBackground || tabBackgroundResId == 0) {
+			selectedTabBackground = null;
+			pressedTabBackground = null;
+			return;
+		}
+		selectedTabBackground = ContextCompat.getDrawable(getContext(), tabBackgroundResId).mutate();
+		selectedTabBackground.setState(STATE_SELECTED);
+		pressedTabBackground = ContextCompat.getDrawable(getContext(), tabBackgroundResId).mutate();
+		pressedTabBackground.setState(STATE_ENABLED);
+		// animated state changes, e.g. ripples and exit fades, invalidate the strip
+		selectedTabBackground.setCallback(this);
+		pressedTabBackground.setCallback(this);
+	}
+
+	@Override
+	protected boolean verifyDrawable(Drawable who) {
+		return who == selectedTabBackground || who == pressedTabBackground || super.verifyDrawable(who);
+	}
+
+	/**
+	 * Draws the shared backgrounds behind the selected and the pressed tab, positioned from the tab extents. The
+	 * pressed background keeps being drawn after the touch ends, so its exit animation can finish.
+	 */
+	private void drawSharedTabBackground(Canvas canvas) {
+		if (selectedTabBackground == null || tabExtents.getCount() == 0) {
+			return;
+		}
+		int containerLeft = tabsContainer.getLeft();
+		if (selectedTab >= 0 && selectedTab < tabExtents.getCount() && selectedTab != pressedTab) {
+			selectedTabBackground.setBounds(containerLeft + tabExtents.getLeft(selectedTab), 0,
+					containerLeft + tabExtents.getRight(selectedTab), getHeight());
+			selectedTabBackground.draw(canvas);
+		}
+		if (pressedTab >= 0 && pressedTab < tabExtents.getCount()) {
+			pressedTabBackground.setBounds(containerLeft + tabExtents.getLeft(pressedTab), 0,
+					containerLeft + tabExtents.getRight(pressedTab), getHeight());
+			pressedTabBackground.draw(canvas);
+		}
+	}
+
+	/**
+	 * Finds the tab under a touch from the cached tab extents and moves the pressed state of the shared background
+	 * to it. The press ends when the finger lifts or starts scrolling the strip.
+	 */
+	private void trackPressedTab(MotionEvent ev) {
+		if (pressedTabBackground == null) {
+			return;
+		}
+		switch (ev.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN:
+				int x = (int) ev.getX() + getScrollX() - tabsContainer.getLeft();
+				int position = tabExtents.indexAt(x);
+				if (position < 0 || x < tabExtents.getLeft(position) || x >= tabExtents.getRight(position)) {
+					return;
+				}
+				pressedTab = position;
+				tabPressed = true;
+				pressedDownX = ev.getX();
+				DrawableCompat.setHotspot(pressedTabBackground, ev.getX() + getScrollX(), ev.getY());
+				pressedTabBackground.setState(position == selectedTab ? STATE_PRESSED_SELECTED : STATE_PRESSED);
+				invalidate();
+				break;
+			case MotionEvent.ACTION_MOVE:
+				if (Math.abs(ev.getX() - pressedDownX) > scrubTouchSlop) {
+					releasePressedTab();
+				}
+				break;
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL:
+				releasePressedTab();
+				break;
+		}
+	}
+
+	private void releasePressedTab() {
+		tabPressed = false;
+		if (pressedTabBackground != null && pressedTab >= 0) {
+			pressedTabBackground.setState(pressedTab == selectedTab ? STATE_SELECTED : STATE_ENABLED);
+			invalidate();
+		}
+	}
+
+	@Override
+	public boolean dispatchTouchEvent(MotionEvent ev) {
+		if (sharedTabBackground) {
+			trackPressedTab(ev);
+		}
+		if (scrubberEnabled && handleScrubTouch(ev)) {
+			return true;
+		}
+		return super.dispatchTouchEvent(ev);
+	}
+
+	/**
+	 * Tracks touches for the scrubber, which starts on a long press or on a drag starting at either edge of the
+	 * strip. The long press is left to the tabs if an {@link OnTabLongClickListener} is set.
+	 *
+	 * @return true if the event was consumed by the scrubber
+	 */
+	private boolean handleScrubTouch(MotionEvent ev) {
+		float x = ev.getX();
+		switch (ev.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN:
+				scrubDownX = x;
+				scrubX = x;
+				scrubFromEdge = tabCount > 1 && (x < scrubberEdgeSize || x > getWidth() - scrubberEdgeSize);
+				if (tabCount > 1 && onTabLongClickListener == null) {
+					postDelayed(startScrubOnLongPress, ViewConfiguration.getLongPressTimeout());
+				}
+				return false;
+			case MotionEvent.ACTION_MOVE:
+				if (scrubbing) {
+					updateScrub(x);
+					return true;
+				}
+				scrubX = x;
+				if (Math.abs(x - scrubDownX) > scrubTouchSlop) {
+					removeCallbacks(startScrubOnLongPress);
+					if (scrubFromEdge) {
+						scrubFromEdge = false;
+						startScrub();
+						return true;
+					}
+				}
+				return false;
+			case MotionEvent.ACTION_UP:
+			case MotionEvent.ACTION_CANCEL:
+				removeCallbacks(startScrubOnLongPress);
+				if (scrubbing) {
+					finishScrub(ev.getActionMasked() == MotionEvent.ACTION_UP);
+					return true;
+				}
+				return false;
+			default:
+				return scrubbing;
+		}
+	}
+
+	private void startScrub() {
+		scrubbing = true;
+		releasePressedTab();
+		scrubPosition = -1;
+
+		// the tabs and the scroll view must not act on this gesture anymore
+		long now = SystemClock.uptimeMillis();
+		MotionEvent cancel = MotionEvent.obtain(now, now, MotionEvent.ACTION_CANCEL, scrubX, 0f, 0);
+		super.dispatchTouchEvent(cancel);
+		cancel.recycle();
+		if (getParent() != null) {
+			getParent().requestDisallowInterceptTouchEvent(true);
+		}
+
+		scrubberTextPaint.setTextSize(tabTextSize);
+		updateScrub(scrubX);
+	}
+
+	/**
+	 * Maps the touch position across the strip to a page, or to a section if the tab provider is a
+	 * {@link SectionIndexer}, and scrolls the strip straight to that tab using the cached tab extents.
+	 */
+	private void updateScrub(float x) {
+		scrubX = x;
+		int usableWidth = getWidth() - 2 * scrubberEdgeSize;
+		float fraction = usableWidth > 0 ? Math.max(0f, Math.min(1f, (x - scrubberEdgeSize) / usableWidth)) : 0f;
+
+		int position;
+		int pageCount = tabPager.getCount();
+		Object[] sections = null;
+		int section = 0;
+		Object provider = getTabProvider();
+		if (provider instanceof SectionIndexer) {
+			sections = ((SectionIndexer) provider).getSections();
+		}
+		if (sections != null && sections.length > 0) {
+			section = Math.min((int) (fraction * sections.length), sections.length - 1);
+			position = Math.max(0, Math.min(((SectionIndexer) provider).getPositionForSection(section), pageCount - 1));
+		} else {
+			sections = null;
+			position = Math.round(fraction * (pageCount - 1));
+		}
+
+		if (position != scrubPosition) {
+			scrubPosition = position;
+			scrubLabel = sections != null ? String.valueOf(sections[section]) : (position + 1) + " / " + pageCount;
+			int tab = pageToTab(position);
+			if (tab >= 0 && tab < tabExtents.getCount()) {
+				scrollTo(TabGeometry.scrollTarget(tabExtents.getLeft(tab), tab, 0, scrollOffset), 0);
+			}
+		}
+		invalidate();
+	}
+
+	private void finishScrub(boolean jump) {
+		scrubbing = false;
+		// the strip was scrolled directly while scrubbing
+		lastScrollX = -1;
+		if (jump && scrubPosition >= 0 && scrubPosition != tabPager.getCurrentItem()) {
+			tabPager.setCurrentItem(scrubPosition, false);
+		} else {
+			scrollToChild(currentPosition, 0);
+		}
+		invalidate();
+	}
+
+	/**
+	 * Draws the scrubber over the visible part of the strip: a track along the bottom with the position of the touch,
+	 * and the page number or section label above it.
+	 */
+	private void drawScrubber(Canvas canvas) {
+		int left = getScrollX();
+		int width = getWidth();
+		int height = getHeight();
+
+		rectPaint.setColor(scrubberColor);
+		canvas.drawRect(left, 0, left + width, height, rectPaint);
+
+		rectPaint.setColor(underlineColor);
+		canvas.drawRect(left + scrubberEdgeSize, height - underlineHeight, left + width - scrubberEdgeSize, height, rectPaint);
+
+		float thumbWidth = Math.max((width - 2f * scrubberEdgeSize) / tabCount, 2f * indicatorHeight);
+		float thumbCenter = left + Math.max(scrubberEdgeSize, Math.min(scrubX, width - scrubberEdgeSize));
+		rectPaint.setColor(indicatorColor);
+		canvas.drawRect(thumbCenter - thumbWidth / 2f, height - indicatorHeight, thumbCenter + thumbWidth / 2f, height, rectPaint);
+
+		if (scrubLabel != null) {
+			float halfLabel = scrubberTextPaint.measureText(scrubLabel) / 2f;
+			float labelX = Math.max(left + halfLabel, Math.min(thumbCenter, left + width - halfLabel));
+			float baseline = (height - indicatorHeight) / 2f - (scrubberTextPaint.descent() + scrubberTextPaint.ascent()) / 2f;
+			canvas.drawText(scrubLabel, labelX, baseline, scrubberTextPaint);
+		}
 	}
 
-	private void scrollToChild(int position, int offset) {
+	/**
+	 * Releases memory held by the strip according to a {@link ComponentCallbacks2} trim level. While the strip is
+	 * visible, the icons and custom tab views of tabs more than one screen width away from the visible area are
+	 * released. Once the UI is hidden, the icons of all tabs and the custom indicator bitmap are released as well.
+	 * Released tabs keep their width and are rebuilt from the adapter when they are scrolled into view again.
+	 *
+	 * @return an estimate of the bytes released, not counting icons of an {@link IconTabProvider} and tab backgrounds,
+	 *         which stay in the Resources cache
+	 */
+	public long trimMemory(int level) {
+		if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE || tabCount == 0 || tabPager == null) {
+			return 0;
+		}
 
-		if (tabCount == 0) {
-			return;
+		long released = 0;
+		boolean uiHidden = level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+
+		if (uiHidden && customIndicator != null && customIndicatorId != 0) {
+			released += (long) customIndicator.getRowBytes() * customIndicator.getHeight();
+			customIndicator = null;
 		}
 
-		int newScrollX = tabsContainer.getChildAt(position).getLeft() + offset;
+		if (releasedTabs == null) {
+			releasedTabs = new boolean[tabCount];
+		}
 
-		if (position > 0 || offset > 0) {
-			newScrollX -= scrollOffset;
+		int keepFirst = tabCount;
+		int keepLast = -1;
+		if (!uiHidden && tabExtents.getCount() == 0) {
+			// not laid out yet, the visible tabs are not known
+			return released;
+		} else if (!uiHidden) {
+			int visibleLeft = getScrollX() - getPaddingLeft();
+			keepFirst = tabExtents.firstVisible(visibleLeft - getWidth());
+			keepLast = tabExtents.lastVisible(visibleLeft + 2 * getWidth());
 		}
 
-		if (newScrollX != lastScrollX) {
-			lastScrollX = newScrollX;
-			scrollTo(newScrollX, 0);
+		Object adapter = getTabProvider();
+		boolean releaseViews = adapter instanceof ViewTabProvider || adapter instanceof AsyncViewTabProvider;
+		boolean releaseIcons = adapter instanceof IconTabProvider || adapter instanceof DrawableTabProvider;
+		if (!releaseViews && !releaseIcons) {
+			return released;
+		}
+
+		for (int i = 0; i < tabCount; i++) {
+			if ((i >= keepFirst && i <= keepLast) || releasedTabs[i]) {
+				continue;
+			}
+			View tab = tabsContainer.getChildAt(i);
+			if (tab instanceof TabPlaceholder) {
+				// not created yet
+				continue;
+			} else if (releaseIcons && tab instanceof ImageView) {
+				if (adapter instanceof DrawableTabProvider) {
+					// icons of an IconTabProvider stay in the Resources cache
+					released += estimateBytes(((ImageView) tab).getDrawable());
+				}
+				pinTabWidth(tab);
+				((ImageView) tab).setImageDrawable(null);
+			} else if (releaseViews) {
+				released += estimateBytes(tab);
+				View placeholder = new TabPlaceholder(getContext(), tab.getWidth());
+				placeholder.setLayoutParams(shouldExpand ? expandedTabLayoutParams
+						: new LinearLayout.LayoutParams(tab.getWidth(), LayoutParams.MATCH_PARENT));
+				tabsContainer.removeViewAt(i);
+				tabsContainer.addView(placeholder, i);
+			} else {
+				continue;
+			}
+			releasedTabs[i] = true;
+			releasedTabCount++;
 		}
 
+		return released;
 	}
 
-	protected int getIndicatorLeft(View tabView) {
-		int left;
-		if (customIndicator != null) {
-			left = getPaddingLeft() + tabView.getLeft() + (tabView.getWidth() - customIndicator.getWidth()) / 2;
-		} else if (fixedIndicatorWidth > 0) {
-			left = getPaddingLeft() + tabView.getLeft() + (tabView.getWidth() - fixedIndicatorWidth) / 2;
-		} else {
-			left = getPaddingLeft() + tabView.getLeft();
+	private void pinTabWidth(View tab) {
+		if (!shouldExpand && tab.getLayoutParams().width != tab.getWidth()) {
+			tab.setLayoutParams(new LinearLayout.LayoutParams(tab.getWidth(), LayoutParams.MATCH_PARENT));
 		}
-		left += indicatorOffset;
-		return left;
 	}
 
-	protected int getIndicatorRight(View tabView) {
-		int right;
-		if (customIndicator != null) {
-			right = tabView.getRight() + getPaddingLeft() - (tabView.getWidth() - customIndicator.getWidth()) / 2;
-		} else if (fixedIndicatorWidth > 0) {
-			right = tabView.getRight() + getPaddingLeft() - (tabView.getWidth() - fixedIndicatorWidth) / 2;
-		} else {
-			right = tabView.getRight() + getPaddingLeft();
+	/**
+	 * Posts {@link #restoreVisibleTabs()}, scrolling happens during draw and layout where tabs must not be added.
+	 */
+	private void scheduleRestoreVisibleTabs() {
+		if (releasedTabCount == 0 || restoreTabsPending) {
+			return;
 		}
-		right += indicatorOffset;
-		return right;
+		restoreTabsPending = true;
+		post(restoreReleasedTabs);
 	}
 
-	@Override
-	protected void onDraw(Canvas canvas) {
-		super.onDraw(canvas);
-
-		if (isInEditMode() || tabCount == 0) {
+	/**
+	 * Rebuilds released tabs that are about to become visible.
+	 */
+	private void restoreVisibleTabs() {
+		if (releasedTabCount == 0 || tabExtents.getCount() == 0) {
 			return;
 		}
-		drawIndicator(canvas);
 
-		drawUnderline(canvas);
+		int visibleLeft = getScrollX() - getPaddingLeft();
+		int first = tabExtents.firstVisible(visibleLeft - getWidth() / 2);
+		int last = Math.min(tabExtents.lastVisible(visibleLeft + getWidth() + getWidth() / 2), tabCount - 1);
+		Object adapter = getTabProvider();
 
-		drawDivider(canvas);
+		for (int i = first; i <= last; i++) {
+			if (!releasedTabs[i]) {
+				continue;
+			}
+			releasedTabs[i] = false;
+			releasedTabCount--;
+
+			View tab = tabsContainer.getChildAt(i);
+			if (adapter instanceof IconTabProvider) {
+				((ImageView) tab).setImageResource(((IconTabProvider) adapter).getPageIconResId(tabToPage(i)));
+				bindTabState(i, tab);
+			} else if (adapter instanceof DrawableTabProvider) {
+				((ImageView) tab).setImageDrawable(((DrawableTabProvider) adapter).getPageDrawable(tabToPage(i)));
+				bindTabState(i, tab);
+			} else if (adapter instanceof ViewTabProvider) {
+				ViewGroup.LayoutParams params = tab.getLayoutParams();
+				tabsContainer.removeViewAt(i);
+				View view = ((ViewTabProvider) adapter).getPageView(tabToPage(i));
+				addTab(i, view);
+				view.setLayoutParams(params);
+				bindTabState(i, view);
+			} else if (adapter instanceof AsyncViewTabProvider && tabInflater != null) {
+				tabInflater.request(i);
+			}
+		}
 	}
 
-	protected void drawIndicator(Canvas canvas) {
-		final int height = getHeight();
+	/**
+	 * Estimates the bitmaps of a tab view. The background is left out, it is usually the shared tab background.
+	 */
+	private static long estimateBytes(View view) {
+		long bytes = 0;
+		if (view instanceof ImageView) {
+			bytes += estimateBytes(((ImageView) view).getDrawable());
+		} else if (view instanceof ViewGroup) {
+			ViewGroup group = (ViewGroup) view;
+			for (int i = 0; i < group.getChildCount(); i++) {
+				bytes += estimateBytes(group.getChildAt(i));
+			}
+		}
+		return bytes;
+	}
 
-		// draw indicator line
+	private static long estimateBytes(Drawable drawable) {
+		if (drawable instanceof BitmapDrawable) {
+			Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+			return bitmap != null ? (long) bitmap.getRowBytes() * bitmap.getHeight() : 0;
+		} else if (drawable != null && drawable.getIntrinsicWidth() > 0 && drawable.getIntrinsicHeight() > 0) {
+			return 4L * drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight();
+		}
+		return 0;
+	}
 
-		rectPaint.setColor(indicatorColor);
+	@Override
+	protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+		super.onScrollChanged(l, t, oldl, oldt);
+		scheduleRestoreVisibleTabs();
+		if (tabInflater != null && tabExtents.getCount() > 0) {
+			tabInflater.setFocus(tabExtents.indexAt(l - getPaddingLeft() + getWidth() / 2));
+		}
+	}
 
-		// default: line below current tab
-		View currentTab = tabsContainer.getChildAt(currentPosition);
-		float lineLeft = getIndicatorLeft(currentTab);
-		float lineRight = getIndicatorRight(currentTab);
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		if (visibility == VISIBLE) {
+			scheduleRestoreVisibleTabs();
+			reloadCustomIndicator();
+		}
+	}
 
-		// if there is an offset, start interpolating left and right coordinates between current and next tab
-		if (currentPositionOffset > 0f && currentPosition < tabCount - 1) {
+	/**
+	 * Decodes the custom indicator released by {@link #trimMemory(int)} on the background thread. The indicator is
+	 * not drawn until it is back.
+	 */
+	private void reloadCustomIndicator() {
+		if (customIndicator != null || customIndicatorId == 0 || customIndicatorLoading) {
+			return;
+		}
+		customIndicatorLoading = true;
+		final int resId = customIndicatorId;
+		final Resources resources = getResources();
+		BackgroundHandler.background().post(new Runnable() {
+			@Override
+			public void run() {
+				final Bitmap bitmap = BitmapFactory.decodeResource(resources, resId);
+				BackgroundHandler.main().post(new Runnable() {
+					@Override
+					public void run() {
+						customIndicatorLoading = false;
+						if (customIndicator == null && customIndicatorId == resId) {
+							customIndicator = bitmap;
+							invalidate();
+						}
+					}
+				});
+			}
+		});
+	}
 
-			View nextTab = tabsContainer.getChildAt(currentPosition + 1);
-			final float nextTabLeft = getIndicatorLeft(nextTab);
-			final float nextTabRight = getIndicatorRight(nextTab);
+	private class TrimMemoryCallbacks implements ComponentCallbacks2 {
 
-			lineLeft = (currentPositionOffset * nextTabLeft + (1f - currentPositionOffset) * lineLeft);
-			lineRight = (currentPositionOffset * nextTabRight + (1f - currentPositionOffset) * lineRight);
+		@Override
+		public void onTrimMemory(int level) {
+			trimMemory(level);
 		}
 
-		if (customIndicator != null) {
-			canvas.drawBitmap(customIndicator, lineLeft, height - customIndicator.getHeight() - indicatorPaddingBottom, rectPaint);
-		} else if (roundIndicator) {
-			RectF rectF = new RectF(lineLeft, height - indicatorHeight - indicatorPaddingBottom, lineRight, height - indicatorPaddingBottom);
-			canvas.drawRoundRect(rectF, indicatorHeight / 2, indicatorHeight / 2, rectPaint);
-		} else {
-			canvas.drawRect(lineLeft, height - indicatorHeight - indicatorPaddingBottom, lineRight, height - indicatorPaddingBottom, rectPaint);
+		@Override
+		public void onLowMemory() {
+			// may arrive while the strip is on screen, only the tabs far off screen can go then
+			trimMemory(getWindowVisibility() == VISIBLE ? ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+					: ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
 		}
-	}
 
-	protected void drawUnderline(Canvas canvas) {
-		rectPaint.setColor(underlineColor);
-		canvas.drawRect(0, getHeight() - underlineHeight, tabsContainer.getWidth(), getHeight(), rectPaint);
 	}
 
-	protected void drawDivider(Canvas canvas) {
-		dividerPaint.setColor(dividerColor);
-		for (int i = 0; i < tabCount - 1; i++) {
-			View tab = tabsContainer.getChildAt(i);
-			canvas.drawLine(tab.getRight(), dividerPadding, tab.getRight(), getHeight() - dividerPadding, dividerPaint);
+	/**
+	 * Holds the place of a tab whose view is not created yet or was released. It takes the estimated width of the tab
+	 * unless its layout params are exact, so the strip does not jump as the views arrive.
+	 */
+	private static class TabPlaceholder extends View {
+
+		private final int estimatedWidth;
+
+		TabPlaceholder(Context context, int estimatedWidth) {
+			super(context);
+			this.estimatedWidth = estimatedWidth;
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			setMeasuredDimension(resolveSize(estimatedWidth, widthMeasureSpec), getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
 		}
+
 	}
 
-	private class PageListener implements OnPageChangeListener {
+	private class PageListener implements TabPager.Callback {
+
+		@Override
+		public void onDataSetChanged() {
+			notifyDataSetChanged();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			updateTabRange(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			insertTabRange(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			removeTabRange(positionStart, itemCount);
+		}
 
 		@Override
 		public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
 
-			currentPosition = position;
-			currentPositionOffset = positionOffset;
-			if (tabsContainer.getChildAt(position) != null) {
-				scrollToChild(position, (int) (positionOffset * tabsContainer.getChildAt(position).getWidth()));
+			if (pageEventTrace != null) {
+				pageEventTrace.addScrolled(position, positionOffset, positionOffsetPixels);
+			}
+			counters.scrollFrames++;
+			if (windowed && (pageToTab(position) < 0 || pageToTab(position) >= tabCount)) {
+				// a jump to a page outside of the tab window
+				updateTabWindow(position);
+			}
+			int tab = pageToTab(position);
+			currentPosition = clampTab(tab);
+			currentPositionOffset = tab == currentPosition ? positionOffset : 0f;
+			if (tab == currentPosition && tabsContainer.getChildAt(tab) != null) {
+				scrollToChild(tab, (int) (positionOffset * tabsContainer.getChildAt(tab).getWidth()));
 			}
 
+			updateTabEmphasis();
+
 			invalidate();
 
 		}
 
 		@Override
 		public void onPageScrollStateChanged(int state) {
-			if (state == ViewPager.SCROLL_STATE_IDLE) {
-				scrollToChild(pager.getCurrentItem(), 0);
+			if (pageEventTrace != null) {
+				pageEventTrace.addStateChanged(state);
+			}
+			if (state == TabPager.SCROLL_STATE_IDLE) {
+				scrollToChild(clampTab(pageToTab(selectedPage)), 0);
+				demoteTabsLayer();
+			} else {
+				promoteTabsLayer();
 			}
 
 		}
 
 		@Override
 		public void onPageSelected(int position) {
-			notifyTabStateChanged(position);
+			if (pageEventTrace != null) {
+				pageEventTrace.addSelected(position);
+			}
+			counters.pageSelections++;
+			selectedPage = position;
+			updateTabWindow(position);
+			notifyTabStateChanged(pageToTab(position));
 		}
 
 	}
 
-	private class PagerAdapterObserver extends DataSetObserver {
+	/**
+	 * Registered with the pager while the strip is detached. Records that the data set changed, so the strip only
+	 * rebuilds its tabs on reattach if it has to. Holds no reference to the strip.
+	 */
+	private static class DetachedPagerCallback implements TabPager.Callback {
+
+		boolean dataSetChanged;
+
 		@Override
-		public void onChanged() {
-			notifyDataSetChanged();
+		public void onDataSetChanged() {
+			dataSetChanged = true;
 		}
 
 		@Override
-		public void onInvalidated() {
-			notifyDataSetChanged();
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			dataSetChanged = true;
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			dataSetChanged = true;
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			dataSetChanged = true;
+		}
+
+		@Override
+		public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
 		}
+
+		@Override
+		public void onPageScrollStateChanged(int state) {
+		}
+
+		@Override
+		public void onPageSelected(int position) {
+		}
+
+	}
+
+	/**
+	 * Lists all pages in the overflow chooser, creating only the rows in view.
+	 */
+	private class OverflowAdapter extends BaseAdapter {
+
+		@Override
+		public int getCount() {
+			return tabPager != null ? tabPager.getCount() : 0;
+		}
+
+		@Override
+		public Object getItem(int position) {
+			counters.pageTitleQueries++;
+			CharSequence title = tabPager.getPageTitle(position);
+			return title != null ? title : String.valueOf(position + 1);
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return position;
+		}
+
+		@Override
+		public View getView(int position, View convertView, ViewGroup parent) {
+			TextView row = (TextView) convertView;
+			if (row == null) {
+				row = (TextView) LayoutInflater.from(parent.getContext()).inflate(android.R.layout.simple_list_item_1, parent, false);
+			}
+			row.setText((CharSequence) getItem(position));
+			return row;
+		}
+
 	}
 
 	public void setIndicatorColor(int indicatorColor) {
@@ -548,6 +2657,33 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		return this.indicatorColor;
 	}
 
+	/**
+	 * Limits the strip to the given number of tabs around the current page, plus an overflow tab opening a list of
+	 * all pages. Keeps memory and layout cost fixed for adapters with any number of pages. 0 shows all tabs.
+	 */
+	public void setMaxTabs(int maxTabs) {
+		this.maxTabs = maxTabs;
+		if (tabPager != null) {
+			notifyDataSetChanged();
+		}
+	}
+
+	public int getMaxTabs() {
+		return maxTabs;
+	}
+
+	/**
+	 * Sets the shape of the indicator, or null for a plain rectangle. Ignored while a custom indicator bitmap is set.
+	 */
+	public void setIndicatorShape(IndicatorShape indicatorShape) {
+		this.indicatorShape = indicatorShape;
+		invalidate();
+	}
+
+	public IndicatorShape getIndicatorShape() {
+		return indicatorShape;
+	}
+
 	public void setIndicatorHeight(int indicatorLineHeightPx) {
 		this.indicatorHeight = indicatorLineHeightPx;
 		invalidate();
@@ -613,6 +2749,7 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 	}
 
 	public void setShouldExpand(boolean shouldExpand) {
+		releasePinnedTabWidths();
 		this.shouldExpand = shouldExpand;
 		requestLayout();
 	}
@@ -626,10 +2763,12 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 	}
 
 	public void setAllCaps(boolean textAllCaps) {
+		releasePinnedTabWidths();
 		this.textAllCaps = textAllCaps;
 	}
 
 	public void setTextSize(int textSizePx) {
+		releasePinnedTabWidths();
 		this.tabTextSize = textSizePx;
 		updateTabStyles();
 	}
@@ -640,11 +2779,13 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 
 	public void setTextColor(int textColor) {
 		this.tabTextColor = textColor;
+		invalidateTabTextColors();
 		updateTabStyles();
 	}
 
 	public void setTextColorResource(int resId) {
 		this.tabTextColor = getResources().getColor(resId);
+		invalidateTabTextColors();
 		updateTabStyles();
 	}
 
@@ -652,7 +2793,168 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		return tabTextColor;
 	}
 
+	public void setSelectedTextColor(int textColor) {
+		this.selectedTabTextColor = textColor;
+		this.hasSelectedTabTextColor = true;
+		invalidateTabTextColors();
+		updateTabStyles();
+	}
+
+	/**
+	 * Removes the selected text color, all tabs use the text color again and no color is blended while scrolling.
+	 */
+	public void clearSelectedTextColor() {
+		this.hasSelectedTabTextColor = false;
+		invalidateTabTextColors();
+		updateTabStyles();
+	}
+
+	public void setSelectedTextColorResource(int resId) {
+		setSelectedTextColor(getResources().getColor(resId));
+	}
+
+	public int getSelectedTextColor() {
+		return hasSelectedTabTextColor ? selectedTabTextColor : tabTextColor;
+	}
+
+	/**
+	 * Sets the scale of the selected tab. The tab is scaled with a view transform, so neighbouring tabs are not
+	 * moved and no layout pass is needed.
+	 */
+	public void setSelectedTextScale(float scale) {
+		this.selectedTabTextScale = scale;
+		updateTabStyles();
+	}
+
+	public float getSelectedTextScale() {
+		return selectedTabTextScale;
+	}
+
+	public void setSelectedTabAlpha(float alpha) {
+		this.selectedTabAlpha = alpha;
+		updateTabStyles();
+	}
+
+	public float getSelectedTabAlpha() {
+		return selectedTabAlpha;
+	}
+
+	public void setUnselectedTabAlpha(float alpha) {
+		this.unselectedTabAlpha = alpha;
+		updateTabStyles();
+	}
+
+	public float getUnselectedTabAlpha() {
+		return unselectedTabAlpha;
+	}
+
+	public void setBadgeColor(int badgeColor) {
+		this.badgeColor = badgeColor;
+		invalidate();
+	}
+
+	public int getBadgeColor() {
+		return badgeColor;
+	}
+
+	public void setBadgeTextColor(int badgeTextColor) {
+		this.badgeTextColor = badgeTextColor;
+		invalidate();
+	}
+
+	public int getBadgeTextColor() {
+		return badgeTextColor;
+	}
+
+	public void setBadgeTextSize(int textSizePx) {
+		this.badgeTextSize = textSizePx;
+		updateBadgeTextMetrics();
+		invalidate();
+	}
+
+	public int getBadgeTextSize() {
+		return badgeTextSize;
+	}
+
+	/**
+	 * Enables the scrubber: a long press or a drag from either edge of the strip turns it into an index of all pages,
+	 * or of the sections if the tab provider is a {@link SectionIndexer}. Releasing the finger jumps the pager to the
+	 * chosen page.
+	 */
+	public void setScrubberEnabled(boolean scrubberEnabled) {
+		this.scrubberEnabled = scrubberEnabled;
+		if (!scrubberEnabled && scrubbing) {
+			finishScrub(false);
+		}
+	}
+
+	public boolean isScrubberEnabled() {
+		return scrubberEnabled;
+	}
+
+	public void setScrubberColor(int scrubberColor) {
+		this.scrubberColor = scrubberColor;
+		invalidate();
+	}
+
+	public int getScrubberColor() {
+		return scrubberColor;
+	}
+
+	/**
+	 * Loads the tab typeface from the given asset on a background thread. Until it is ready the tabs use the current
+	 * typeface, then they are restyled once. Fonts are cached for the whole process, so other strips using the same
+	 * path get it immediately.
+	 */
+	public void setFontPath(String assetPath) {
+		this.fontPath = assetPath;
+		if (assetPath != null) {
+			loadFont();
+		}
+	}
+
+	public String getFontPath() {
+		return fontPath;
+	}
+
+	private void loadFont() {
+		if (isInEditMode()) {
+			return;
+		}
+		Typeface typeface = TypefaceCache.get(fontPath);
+		if (typeface != null) {
+			applyFontTypeface(typeface);
+			return;
+		}
+		if (typefaceCallback == null) {
+			typefaceCallback = new TypefaceCache.Callback() {
+				@Override
+				public void onTypefaceLoaded(String path, Typeface typeface) {
+					// the path may have been replaced while loading
+					if (typeface != null && path.equals(fontPath)) {
+						applyFontTypeface(typeface);
+					}
+				}
+			};
+		}
+		TypefaceCache.load(getContext(), fontPath, typefaceCallback);
+	}
+
+	private void applyFontTypeface(Typeface typeface) {
+		if (typeface == tabTypeface) {
+			return;
+		}
+		releasePinnedTabWidths();
+		this.tabTypeface = typeface;
+		updateTabStyles();
+	}
+
+	/**
+	 * Sets the tab typeface directly, replacing a font set with {@link #setFontPath(String)}.
+	 */
 	public void setTypeface(Typeface typeface, int style) {
+		this.fontPath = null;
+		releasePinnedTabWidths();
 		this.tabTypeface = typeface;
 		this.tabTypefaceStyle = style;
 		updateTabStyles();
@@ -660,13 +2962,32 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 
 	public void setTabBackground(int resId) {
 		this.tabBackgroundResId = resId;
+		loadSharedTabBackgrounds();
 	}
 
 	public int getTabBackground() {
 		return tabBackgroundResId;
 	}
 
+	/**
+	 * If enabled, the strip draws the tab background itself behind the selected and the pressed tab, instead of
+	 * giving every tab its own instance of the drawable.
+	 */
+	public void setSharedTabBackground(boolean sharedTabBackground) {
+		this.sharedTabBackground = sharedTabBackground;
+		// the selected tab is only tracked in shared mode, pick it up from the current page
+		selectedTab = sharedTabBackground && tabCount > 0 ? currentPosition : -1;
+		loadSharedTabBackgrounds();
+		updateTabStyles();
+		invalidate();
+	}
+
+	public boolean isSharedTabBackground() {
+		return sharedTabBackground;
+	}
+
 	public void setTabPaddingLeftRight(int paddingPx) {
+		releasePinnedTabWidths();
 		this.tabPadding = paddingPx;
 		updateTabStyles();
 	}
@@ -675,11 +2996,60 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		return tabPadding;
 	}
 
+	/**
+	 * If enabled, the widths of the tabs and the scroll position are saved with the instance state, so a restored
+	 * strip showing the same tabs can skip measuring them and scroll to its old position in the first frame.
+	 */
+	public void setSaveTabMetrics(boolean saveTabMetrics) {
+		this.saveTabMetrics = saveTabMetrics;
+	}
+
+	public boolean isSaveTabMetrics() {
+		return saveTabMetrics;
+	}
+
+	/**
+	 * If enabled, the tabs are rendered into a hardware layer while the pager is dragged or settling.
+	 */
+	public void setHardwareLayerOnScroll(boolean hardwareLayerOnScroll) {
+		this.hardwareLayerOnScroll = hardwareLayerOnScroll;
+		if (!hardwareLayerOnScroll) {
+			demoteTabsLayer();
+		}
+	}
+
+	public boolean isHardwareLayerOnScroll() {
+		return hardwareLayerOnScroll;
+	}
+
+	/**
+	 * Sets the largest strip size in pixels that is still promoted to a hardware layer. The value is further
+	 * limited by the maximum texture size of the device.
+	 */
+	public void setMaxHardwareLayerSize(int widthPx, int heightPx) {
+		this.maxHardwareLayerWidth = widthPx;
+		this.maxHardwareLayerHeight = heightPx;
+	}
+
+	/**
+	 * @return how often the tabs were promoted to a hardware layer since the strip was created, not affected by
+	 *         {@link #resetMetrics()}
+	 */
+	public int getLayerPromotionCount() {
+		return layerPromotionCount;
+	}
+
 	@Override
 	public void onRestoreInstanceState(Parcelable state) {
 		SavedState savedState = (SavedState) state;
 		super.onRestoreInstanceState(savedState.getSuperState());
 		currentPosition = savedState.currentPosition;
+		if (savedState.tabWidths != null) {
+			restoredTabWidths = savedState.tabWidths;
+			restoredScrollX = savedState.scrollX;
+			restoredContentHash = savedState.contentHash;
+			applyRestoredTabMetrics();
+		}
 		requestLayout();
 	}
 
@@ -688,11 +3058,23 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		Parcelable superState = super.onSaveInstanceState();
 		SavedState savedState = new SavedState(superState);
 		savedState.currentPosition = currentPosition;
+		if (saveTabMetrics && tabCount > 0 && tabsContainer.getChildCount() == tabCount) {
+			int[] widths = new int[tabCount];
+			for (int i = 0; i < tabCount; i++) {
+				widths[i] = tabsContainer.getChildAt(i).getWidth();
+			}
+			savedState.tabWidths = widths;
+			savedState.scrollX = getScrollX();
+			savedState.contentHash = computeContentHash();
+		}
 		return savedState;
 	}
 
 	static class SavedState extends BaseSavedState {
 		int currentPosition;
+		int[] tabWidths;
+		int scrollX;
+		int contentHash;
 
 		public SavedState(Parcelable superState) {
 			super(superState);
@@ -701,12 +3083,18 @@ public class PagerSlidingTabStrip extends HorizontalScrollView {
 		private SavedState(Parcel in) {
 			super(in);
 			currentPosition = in.readInt();
+			tabWidths = in.createIntArray();
+			scrollX = in.readInt();
+			contentHash = in.readInt();
 		}
 
 		@Override
 		public void writeToParcel(Parcel dest, int flags) {
 			super.writeToParcel(dest, flags);
 			dest.writeInt(currentPosition);
+			dest.writeIntArray(tabWidths);
+			dest.writeInt(scrollX);
+			dest.writeInt(contentHash);
 		}
 
 		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
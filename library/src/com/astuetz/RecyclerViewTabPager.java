@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * {@link TabPager} for a horizontal {@link RecyclerView} with full width pages, usually paging with a
+ * {@code PagerSnapHelper}. The adapter reports which items changed, so the strip updates only the affected tabs
+ * instead of rebuilding all of them.
+ * <p>
+ * Tab titles are taken from adapters implementing {@link PageTitleProvider}, the tab provider interfaces of
+ * {@link PagerSlidingTabStrip} work as with a {@code PagerAdapter}. The RecyclerView dependency is not pulled in by
+ * the library, apps using this class have to depend on recyclerview-v7 themselves. If the adapter of the
+ * RecyclerView is replaced, set up the strip again.
+ */
+public class RecyclerViewTabPager implements TabPager {
+
+	public interface PageTitleProvider {
+		CharSequence getPageTitle(int position);
+	}
+
+	private final RecyclerView recyclerView;
+	private final LinearLayoutManager layoutManager;
+	private final ScrollListener scrollListener = new ScrollListener();
+	private final AdapterObserver adapterObserver = new AdapterObserver();
+
+	private Callback callback;
+	private RecyclerView.Adapter observedAdapter;
+	private int currentItem = 0;
+
+	public RecyclerViewTabPager(RecyclerView recyclerView) {
+		if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)
+				|| ((LinearLayoutManager) recyclerView.getLayoutManager()).getOrientation() != LinearLayoutManager.HORIZONTAL) {
+			throw new IllegalArgumentException("RecyclerView needs a horizontal LinearLayoutManager.");
+		}
+		this.recyclerView = recyclerView;
+		this.layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+	}
+
+	public RecyclerView getRecyclerView() {
+		return recyclerView;
+	}
+
+	@Override
+	public int getCount() {
+		return recyclerView.getAdapter() != null ? recyclerView.getAdapter().getItemCount() : 0;
+	}
+
+	@Override
+	public int getCurrentItem() {
+		// the adapter may have shrunk without reporting ranges
+		return Math.min(currentItem, Math.max(0, getCount() - 1));
+	}
+
+	@Override
+	public void setCurrentItem(int position, boolean smoothScroll) {
+		if (smoothScroll) {
+			recyclerView.smoothScrollToPosition(position);
+		} else {
+			layoutManager.scrollToPositionWithOffset(position, 0);
+			selectItem(position);
+		}
+	}
+
+	@Override
+	public CharSequence getPageTitle(int position) {
+		Object adapter = recyclerView.getAdapter();
+		return adapter instanceof PageTitleProvider ? ((PageTitleProvider) adapter).getPageTitle(position) : null;
+	}
+
+	@Override
+	public Object getTabProvider() {
+		return recyclerView.getAdapter();
+	}
+
+	@Override
+	public void registerCallback(Callback callback) {
+		if (this.callback != null) {
+			unregisterCallback(this.callback);
+		}
+		this.callback = callback;
+		recyclerView.addOnScrollListener(scrollListener);
+		observedAdapter = recyclerView.getAdapter();
+		if (observedAdapter != null) {
+			observedAdapter.registerAdapterDataObserver(adapterObserver);
+		}
+	}
+
+	@Override
+	public void unregisterCallback(Callback callback) {
+		if (this.callback != callback) {
+			return;
+		}
+		recyclerView.removeOnScrollListener(scrollListener);
+		if (observedAdapter != null) {
+			observedAdapter.unregisterAdapterDataObserver(adapterObserver);
+			observedAdapter = null;
+		}
+		this.callback = null;
+	}
+
+	private void selectItem(int position) {
+		if (position != currentItem) {
+			currentItem = position;
+			if (callback != null) {
+				callback.onPageSelected(position);
+			}
+		}
+	}
+
+	private class ScrollListener extends RecyclerView.OnScrollListener {
+
+		@Override
+		public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+			// RecyclerView uses the same values for its scroll states as ViewPager
+			callback.onPageScrollStateChanged(newState);
+		}
+
+		@Override
+		public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+			int first = layoutManager.findFirstVisibleItemPosition();
+			if (first == RecyclerView.NO_POSITION) {
+				return;
+			}
+			View page = layoutManager.findViewByPosition(first);
+			if (page == null || page.getWidth() == 0) {
+				return;
+			}
+
+			int offsetPixels = recyclerView.getPaddingLeft() - page.getLeft();
+			float offset = offsetPixels / (float) page.getWidth();
+			callback.onPageScrolled(first, offset, offsetPixels);
+
+			selectItem(offset >= 0.5f ? first + 1 : first);
+		}
+
+	}
+
+	private class AdapterObserver extends RecyclerView.AdapterDataObserver {
+
+		@Override
+		public void onChanged() {
+			callback.onDataSetChanged();
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount) {
+			callback.onItemRangeChanged(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeInserted(int positionStart, int itemCount) {
+			if (positionStart <= currentItem && getCount() > itemCount) {
+				currentItem += itemCount;
+			}
+			callback.onItemRangeInserted(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeRemoved(int positionStart, int itemCount) {
+			if (positionStart + itemCount <= currentItem) {
+				currentItem -= itemCount;
+			} else if (positionStart <= currentItem) {
+				currentItem = Math.max(0, Math.min(positionStart, getCount() - 1));
+			}
+			callback.onItemRangeRemoved(positionStart, itemCount);
+		}
+
+		@Override
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+			callback.onDataSetChanged();
+		}
+
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+/**
+ * Work counters of a {@link PagerSlidingTabStrip}. They are plain fields incremented on the UI thread, so keeping
+ * them costs nothing measurable, and a JVM test in this package can assert budgets against them. The public view of
+ * them is {@link StripMetrics}.
+ */
+final class StripCounters {
+
+	/** Calls of {@link PagerSlidingTabStrip#notifyDataSetChanged()}. */
+	int rebuilds;
+
+	/** Tab views added to the tabs container. */
+	int tabViewsCreated;
+
+	/** Measure passes of the strip. */
+	int measurePasses;
+
+	/** Layout passes of the strip. */
+	int layoutPasses;
+
+	/** Page titles queried from the pager. */
+	int pageTitleQueries;
+
+	/** Tab views styled, i.e. given their background, text size, typeface and color. */
+	int tabsStyled;
+
+	/** {@code onPageScrolled} events handled. */
+	int scrollFrames;
+
+	/** Calls of {@code invalidate()} on the strip itself, from any source. Redraws of single tab views are not included. */
+	int invalidates;
+
+	/** {@code onPageSelected} events handled. */
+	int pageSelections;
+
+	/** Calls into the {@link PagerSlidingTabStrip.OnTabStateChangeListener}. */
+	int tabStateCallbacks;
+
+	/** Scroll position changes applied to the strip. */
+	int scrollUpdatesApplied;
+
+	/** Scroll updates skipped because the strip was already at the target position. */
+	int scrollUpdatesSkipped;
+
+	/** Promotions of the tabs container to a hardware layer. */
+	int layerPromotions;
+
+	/** Draws of the strip, including the tabs, badges and scrubber. */
+	int draws;
+
+	long lastRebuildNanos;
+	long totalRebuildNanos;
+	long lastTabStylesNanos;
+	long lastDrawNanos;
+	long totalDrawNanos;
+
+	void reset() {
+		rebuilds = 0;
+		tabViewsCreated = 0;
+		measurePasses = 0;
+		layoutPasses = 0;
+		pageTitleQueries = 0;
+		tabsStyled = 0;
+		scrollFrames = 0;
+		invalidates = 0;
+		pageSelections = 0;
+		tabStateCallbacks = 0;
+		scrollUpdatesApplied = 0;
+		scrollUpdatesSkipped = 0;
+		layerPromotions = 0;
+		draws = 0;
+		lastRebuildNanos = 0;
+		totalRebuildNanos = 0;
+		lastTabStylesNanos = 0;
+		lastDrawNanos = 0;
+		totalDrawNanos = 0;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+/**
+ * Immutable snapshot of the work done by a {@link PagerSlidingTabStrip}, see
+ * {@link PagerSlidingTabStrip#getMetrics()}. Durations are only measured while metrics are enabled on the strip and
+ * are 0 otherwise.
+ */
+public final class StripMetrics {
+
+	private final int rebuildCount;
+	private final long lastRebuildNanos;
+	private final long totalRebuildNanos;
+	private final long lastTabStylesNanos;
+	private final int drawCount;
+	private final long lastDrawNanos;
+	private final long totalDrawNanos;
+	private final int scrollUpdatesApplied;
+	private final int scrollUpdatesSkipped;
+	private final int viewsCreated;
+	private final int layoutPasses;
+	private final int layerPromotions;
+
+	StripMetrics(StripCounters counters) {
+		rebuildCount = counters.rebuilds;
+		lastRebuildNanos = counters.lastRebuildNanos;
+		totalRebuildNanos = counters.totalRebuildNanos;
+		lastTabStylesNanos = counters.lastTabStylesNanos;
+		drawCount = counters.draws;
+		lastDrawNanos = counters.lastDrawNanos;
+		totalDrawNanos = counters.totalDrawNanos;
+		scrollUpdatesApplied = counters.scrollUpdatesApplied;
+		scrollUpdatesSkipped = counters.scrollUpdatesSkipped;
+		viewsCreated = counters.tabViewsCreated;
+		layoutPasses = counters.layoutPasses;
+		layerPromotions = counters.layerPromotions;
+	}
+
+	public int getRebuildCount() {
+		return rebuildCount;
+	}
+
+	public long getLastRebuildNanos() {
+		return lastRebuildNanos;
+	}
+
+	public long getTotalRebuildNanos() {
+		return totalRebuildNanos;
+	}
+
+	public long getLastTabStylesNanos() {
+		return lastTabStylesNanos;
+	}
+
+	public int getDrawCount() {
+		return drawCount;
+	}
+
+	public long getLastDrawNanos() {
+		return lastDrawNanos;
+	}
+
+	public long getTotalDrawNanos() {
+		return totalDrawNanos;
+	}
+
+	public int getScrollUpdatesApplied() {
+		return scrollUpdatesApplied;
+	}
+
+	public int getScrollUpdatesSkipped() {
+		return scrollUpdatesSkipped;
+	}
+
+	public int getViewsCreated() {
+		return viewsCreated;
+	}
+
+	public int getLayoutPasses() {
+		return layoutPasses;
+	}
+
+	public int getLayerPromotions() {
+		return layerPromotions;
+	}
+
+	@Override
+	public String toString() {
+		return "StripMetrics{rebuilds=" + rebuildCount + ", lastRebuildNanos=" + lastRebuildNanos
+				+ ", lastTabStylesNanos=" + lastTabStylesNanos + ", draws=" + drawCount + ", lastDrawNanos=" + lastDrawNanos
+				+ ", scrollUpdatesApplied=" + scrollUpdatesApplied + ", scrollUpdatesSkipped=" + scrollUpdatesSkipped
+				+ ", viewsCreated=" + viewsCreated + ", layoutPasses=" + layoutPasses + ", layerPromotions=" + layerPromotions + "}";
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * Creates the tab views of an {@link PagerSlidingTabStrip.AsyncViewTabProvider} on the background thread, one tab
+ * per message. The pending tab closest to the focus position is created next, so the visible tabs come first, and
+ * finished views are delivered on the main thread in the order they were created. A tab requested again while its
+ * view is being created is created once more, and only the view of the latest request is delivered.
+ */
+final class TabInflater {
+
+	interface Callback {
+		void onTabInflated(int position, View view);
+	}
+
+	private final Context context;
+	private final PagerSlidingTabStrip.AsyncViewTabProvider provider;
+	private final Callback callback;
+	private final int firstPage;
+
+	// guarded by this
+	private final boolean[] pending;
+	private final int[] generations;
+	private int pendingCount;
+	private int focus;
+	private boolean scheduled;
+	private boolean cancelled;
+
+	private final Runnable inflateNext = new Runnable() {
+		@Override
+		public void run() {
+			final int position;
+			final int generation;
+			synchronized (TabInflater.this) {
+				if (cancelled || pendingCount == 0) {
+					scheduled = false;
+					return;
+				}
+				position = nextPosition();
+				generation = generations[position];
+				pending[position] = false;
+				pendingCount--;
+			}
+
+			final View view = provider.createPageView(context, firstPage + position);
+
+			BackgroundHandler.main().post(new Runnable() {
+				@Override
+				public void run() {
+					if (isLatest(position, generation)) {
+						callback.onTabInflated(position, view);
+					}
+				}
+			});
+			BackgroundHandler.background().post(this);
+		}
+	};
+
+	/**
+	 * @param firstPage page of the first tab, positions passed to and from the inflater are tab indices
+	 */
+	TabInflater(Context context, PagerSlidingTabStrip.AsyncViewTabProvider provider, int firstPage, int count, Callback callback) {
+		this.context = context;
+		this.provider = provider;
+		this.callback = callback;
+		this.firstPage = firstPage;
+		this.pending = new boolean[count];
+		this.generations = new int[count];
+	}
+
+	/**
+	 * Requests the view of a tab. Views of earlier requests for the same tab that are not delivered yet are dropped.
+	 */
+	synchronized void request(int position) {
+		if (cancelled || position < 0 || position >= pending.length) {
+			return;
+		}
+		generations[position]++;
+		if (pending[position]) {
+			return;
+		}
+		pending[position] = true;
+		pendingCount++;
+		if (!scheduled) {
+			scheduled = true;
+			BackgroundHandler.background().post(inflateNext);
+		}
+	}
+
+	synchronized void setFocus(int position) {
+		focus = position;
+	}
+
+	/**
+	 * Drops all pending tabs, views that are already created are not delivered anymore.
+	 */
+	synchronized void cancel() {
+		cancelled = true;
+		pendingCount = 0;
+	}
+
+	private synchronized boolean isLatest(int position, int generation) {
+		return !cancelled && generations[position] == generation;
+	}
+
+	private int nextPosition() {
+		int center = Math.max(0, Math.min(focus, pending.length - 1));
+		for (int distance = 0; distance < pending.length; distance++) {
+			if (center - distance >= 0 && pending[center - distance]) {
+				return center - distance;
+			}
+			if (center + distance < pending.length && pending[center + distance]) {
+				return center + distance;
+			}
+		}
+		throw new IllegalStateException("No pending tab.");
+	}
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.graphics.drawable.Drawable;
+import android.support.v4.util.LongSparseArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A list of tabs that can not be changed once built, independent of any pager. It holds no views, so it can be built
+ * on a background thread and applied with {@link PagerSlidingTabStrip#setTabModel(TabModel)}. Tabs are matched by
+ * their stable id, tabs that are kept reuse their views. A {@link Drawable} icon is shared with the tab view showing
+ * it and is not copied, so it must not be changed or used elsewhere after building.
+ */
+public final class TabModel {
+
+	public static final class Tab {
+
+		private final long id;
+		private final CharSequence title;
+		private final int iconResId;
+		private final Drawable icon;
+		private final CharSequence badge;
+		private final CharSequence contentDescription;
+
+		private Tab(Builder builder) {
+			this.id = builder.id;
+			this.title = builder.title;
+			this.iconResId = builder.iconResId;
+			this.icon = builder.icon;
+			this.badge = builder.badge;
+			this.contentDescription = builder.contentDescription;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public CharSequence getTitle() {
+			return title;
+		}
+
+		public int getIconResId() {
+			return iconResId;
+		}
+
+		public Drawable getIcon() {
+			return icon;
+		}
+
+		public boolean hasIcon() {
+			return iconResId != 0 || icon != null;
+		}
+
+		public CharSequence getBadge() {
+			return badge;
+		}
+
+		public CharSequence getContentDescription() {
+			return contentDescription;
+		}
+
+		/**
+		 * @return true if the tab view of this tab shows the same content as the one of the other tab
+		 */
+		boolean sameContent(Tab other) {
+			return iconResId == other.iconResId && icon == other.icon && equal(title, other.title)
+					&& equal(contentDescription, other.contentDescription);
+		}
+
+		private static boolean equal(CharSequence a, CharSequence b) {
+			return a == null ? b == null : b != null && a.toString().equals(b.toString());
+		}
+
+		public static final class Builder {
+
+			private final long id;
+			private CharSequence title;
+			private int iconResId;
+			private Drawable icon;
+			private CharSequence badge;
+			private CharSequence contentDescription;
+
+			public Builder(long id) {
+				this.id = id;
+			}
+
+			public Builder setTitle(CharSequence title) {
+				this.title = title;
+				return this;
+			}
+
+			public Builder setIcon(int iconResId) {
+				this.iconResId = iconResId;
+				this.icon = null;
+				return this;
+			}
+
+			/**
+			 * Drawables can not be shown by two views at once, each tab needs its own instance.
+			 */
+			public Builder setIcon(Drawable icon) {
+				this.icon = icon;
+				this.iconResId = 0;
+				return this;
+			}
+
+			public Builder setBadge(CharSequence badge) {
+				this.badge = badge;
+				return this;
+			}
+
+			public Builder setContentDescription(CharSequence contentDescription) {
+				this.contentDescription = contentDescription;
+				return this;
+			}
+
+			public Tab build() {
+				return new Tab(this);
+			}
+		}
+	}
+
+	public static final class Builder {
+
+		private final List<Tab> tabs = new ArrayList<Tab>();
+
+		public Builder add(Tab tab) {
+			tabs.add(tab);
+			return this;
+		}
+
+		public TabModel build() {
+			return new TabModel(new ArrayList<Tab>(tabs));
+		}
+	}
+
+	private final List<Tab> tabs;
+	private final LongSparseArray<Integer> positions;
+
+	private TabModel(List<Tab> tabs) {
+		this.tabs = Collections.unmodifiableList(tabs);
+		this.positions = new LongSparseArray<Integer>(tabs.size());
+		for (int i = 0; i < tabs.size(); i++) {
+			if (positions.get(tabs.get(i).getId()) != null) {
+				throw new IllegalArgumentException("Duplicate tab id " + tabs.get(i).getId());
+			}
+			positions.put(tabs.get(i).getId(), i);
+		}
+	}
+
+	public int size() {
+		return tabs.size();
+	}
+
+	public Tab get(int position) {
+		return tabs.get(position);
+	}
+
+	public List<Tab> getTabs() {
+		return tabs;
+	}
+
+	/**
+	 * @return the position of the tab with the given id, or -1
+	 */
+	public int indexOfId(long id) {
+		Integer position = positions.get(id);
+		return position != null ? position : -1;
+	}
+
+}
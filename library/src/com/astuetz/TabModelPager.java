@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+/**
+ * The {@link TabPager} of a strip showing a {@link TabModel} without any pager. The strip owns the selection, tab
+ * clicks select the tab directly.
+ */
+class TabModelPager implements TabPager, PagerSlidingTabStrip.BadgeProvider {
+
+	private TabModel model;
+	private int currentItem;
+	private Callback callback;
+
+	TabModelPager(TabModel model) {
+		this.model = model;
+	}
+
+	TabModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Replaces the model without notifying the callback, the strip reconciles its tabs itself.
+	 */
+	void setModel(TabModel model, int currentItem) {
+		this.model = model;
+		this.currentItem = currentItem;
+	}
+
+	@Override
+	public int getCount() {
+		return model.size();
+	}
+
+	@Override
+	public int getCurrentItem() {
+		return currentItem;
+	}
+
+	@Override
+	public void setCurrentItem(int position, boolean smoothScroll) {
+		if (position == currentItem || position < 0 || position >= model.size()) {
+			return;
+		}
+		currentItem = position;
+		if (callback != null) {
+			// a jump without scrolling, reported like a pager settling on the page
+			callback.onPageScrollStateChanged(SCROLL_STATE_SETTLING);
+			callback.onPageScrolled(position, 0f, 0);
+			callback.onPageSelected(position);
+			callback.onPageScrollStateChanged(SCROLL_STATE_IDLE);
+		}
+	}
+
+	@Override
+	public CharSequence getPageTitle(int position) {
+		return model.get(position).getTitle();
+	}
+
+	@Override
+	public Object getTabProvider() {
+		return this;
+	}
+
+	@Override
+	public CharSequence getPageBadge(int position) {
+		return model.get(position).getBadge();
+	}
+
+	@Override
+	public void registerCallback(Callback callback) {
+		this.callback = callback;
+	}
+
+	@Override
+	public void unregisterCallback(Callback callback) {
+		if (this.callback == callback) {
+			this.callback = null;
+		}
+	}
+
+}
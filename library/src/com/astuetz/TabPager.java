@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+/**
+ * A paging component a {@link PagerSlidingTabStrip} can be attached to with
+ * {@link PagerSlidingTabStrip#setTabPager(TabPager)}. {@link ViewPagerTabPager} adapts the support library
+ * {@code ViewPager}, {@link RecyclerViewTabPager} a horizontally paging {@code RecyclerView}.
+ */
+public interface TabPager {
+
+	int SCROLL_STATE_IDLE = 0;
+	int SCROLL_STATE_DRAGGING = 1;
+	int SCROLL_STATE_SETTLING = 2;
+
+	/**
+	 * Receives the scroll and data set events of a pager. Pagers that know which pages changed report ranges,
+	 * otherwise {@link #onDataSetChanged()}.
+	 */
+	interface Callback {
+		void onPageScrolled(int position, float positionOffset, int positionOffsetPixels);
+
+		void onPageSelected(int position);
+
+		void onPageScrollStateChanged(int state);
+
+		void onDataSetChanged();
+
+		void onItemRangeChanged(int positionStart, int itemCount);
+
+		void onItemRangeInserted(int positionStart, int itemCount);
+
+		void onItemRangeRemoved(int positionStart, int itemCount);
+	}
+
+	int getCount();
+
+	int getCurrentItem();
+
+	void setCurrentItem(int position, boolean smoothScroll);
+
+	CharSequence getPageTitle(int position);
+
+	/**
+	 * @return the object checked for the tab provider interfaces of {@link PagerSlidingTabStrip}, usually the
+	 * adapter, or null if the pager has none
+	 */
+	Object getTabProvider();
+
+	/**
+	 * Starts delivering events to the callback, replacing the registered one. The strip registers its callback while
+	 * it is attached to a window, and one only recording data set changes while detached. Implementations must drop
+	 * every reference to a callback when it is unregistered or replaced.
+	 */
+	void registerCallback(Callback callback);
+
+	void unregisterCallback(Callback callback);
+
+}
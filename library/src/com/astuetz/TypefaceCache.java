@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Typeface;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typefaces loaded from assets, shared by all strips of the process. Each font is loaded once on the background
+ * thread, strips asking for it in the meantime are called back together when it is ready.
+ */
+final class TypefaceCache {
+
+	interface Callback {
+		/**
+		 * Called on the main thread.
+		 *
+		 * @param typeface the loaded typeface, or null if the asset could not be loaded
+		 */
+		void onTypefaceLoaded(String path, Typeface typeface);
+	}
+
+	private static final Map<String, Typeface> typefaces = new HashMap<String, Typeface>();
+	private static final Map<String, List<Callback>> pending = new HashMap<String, List<Callback>>();
+
+	private TypefaceCache() {
+	}
+
+	/**
+	 * @return the typeface if it is already loaded, otherwise null
+	 */
+	static synchronized Typeface get(String path) {
+		return typefaces.get(path);
+	}
+
+	static void load(Context context, final String path, Callback callback) {
+		final AssetManager assets = context.getApplicationContext().getAssets();
+
+		synchronized (TypefaceCache.class) {
+			List<Callback> callbacks = pending.get(path);
+			if (callbacks != null) {
+				// already loading
+				callbacks.add(callback);
+				return;
+			}
+			callbacks = new ArrayList<Callback>();
+			callbacks.add(callback);
+			pending.put(path, callbacks);
+		}
+
+		BackgroundHandler.background().post(new Runnable() {
+			@Override
+			public void run() {
+				Typeface typeface;
+				try {
+					typeface = Typeface.createFromAsset(assets, path);
+				} catch (RuntimeException e) {
+					// missing or broken font, the strips keep their fallback
+					typeface = null;
+				}
+
+				final Typeface loaded = typeface;
+				final List<Callback> callbacks;
+				synchronized (TypefaceCache.class) {
+					if (loaded != null) {
+						typefaces.put(path, loaded);
+					}
+					callbacks = pending.remove(path);
+				}
+
+				BackgroundHandler.main().post(new Runnable() {
+					@Override
+					public void run() {
+						for (Callback callback : callbacks) {
+							callback.onTypefaceLoaded(path, loaded);
+						}
+					}
+				});
+			}
+		});
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.database.DataSetObserver;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+
+/**
+ * {@link TabPager} for the support library {@link ViewPager}. A {@link PagerAdapter} only reports that its data set
+ * changed, so every change rebuilds all tabs.
+ */
+public class ViewPagerTabPager implements TabPager {
+
+	private final ViewPager pager;
+	private final Listener listener = new Listener();
+	private final AdapterObserver adapterObserver = new AdapterObserver();
+
+	private Callback callback;
+	private PagerAdapter observedAdapter;
+
+	public ViewPagerTabPager(ViewPager pager) {
+		this.pager = pager;
+	}
+
+	public ViewPager getViewPager() {
+		return pager;
+	}
+
+	@Override
+	public int getCount() {
+		return pager.getAdapter() != null ? pager.getAdapter().getCount() : 0;
+	}
+
+	@Override
+	public int getCurrentItem() {
+		return pager.getCurrentItem();
+	}
+
+	@Override
+	public void setCurrentItem(int position, boolean smoothScroll) {
+		pager.setCurrentItem(position, smoothScroll);
+	}
+
+	@Override
+	public CharSequence getPageTitle(int position) {
+		return pager.getAdapter().getPageTitle(position);
+	}
+
+	@Override
+	public Object getTabProvider() {
+		return pager.getAdapter();
+	}
+
+	@Override
+	public void registerCallback(Callback callback) {
+		if (this.callback != null) {
+			unregisterCallback(this.callback);
+		}
+		this.callback = callback;
+		pager.addOnPageChangeListener(listener);
+		pager.addOnAdapterChangeListener(listener);
+		observeAdapter(pager.getAdapter());
+	}
+
+	@Override
+	public void unregisterCallback(Callback callback) {
+		if (this.callback != callback) {
+			return;
+		}
+		pager.removeOnPageChangeListener(listener);
+		pager.removeOnAdapterChangeListener(listener);
+		observeAdapter(null);
+		this.callback = null;
+	}
+
+	/**
+	 * Moves the data set observer from the adapter it is registered with to the given one, so swapping adapters
+	 * does not leave it registered with the old one.
+	 */
+	private void observeAdapter(PagerAdapter adapter) {
+		if (observedAdapter == adapter) {
+			return;
+		}
+		if (observedAdapter != null) {
+			observedAdapter.unregisterDataSetObserver(adapterObserver);
+		}
+		observedAdapter = adapter;
+		if (adapter != null) {
+			adapter.registerDataSetObserver(adapterObserver);
+		}
+	}
+
+	private class Listener implements ViewPager.OnPageChangeListener, ViewPager.OnAdapterChangeListener {
+
+		@Override
+		public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+			callback.onPageScrolled(position, positionOffset, positionOffsetPixels);
+		}
+
+		@Override
+		public void onPageSelected(int position) {
+			callback.onPageSelected(position);
+		}
+
+		@Override
+		public void onPageScrollStateChanged(int state) {
+			callback.onPageScrollStateChanged(state);
+		}
+
+		@Override
+		public void onAdapterChanged(ViewPager viewPager, PagerAdapter oldAdapter, PagerAdapter newAdapter) {
+			observeAdapter(newAdapter);
+			callback.onDataSetChanged();
+		}
+
+	}
+
+	private class AdapterObserver extends DataSetObserver {
+
+		@Override
+		public void onChanged() {
+			callback.onDataSetChanged();
+		}
+
+		@Override
+		public void onInvalidated() {
+			callback.onDataSetChanged();
+		}
+
+	}
+
+}
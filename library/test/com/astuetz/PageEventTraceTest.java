@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.view.View;
+
+import com.astuetz.geometry.TabGeometry;
+import com.astuetz.pagerslidingtabstrip.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a synthetic trace of drags, flings and a tab jump and checks the work of the strip for every event.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class PageEventTraceTest {
+
+	private static final int PAGE_COUNT = 50;
+
+	private PageEventTrace trace;
+
+	@Before
+	public void setUp() throws IOException {
+		Reader reader = new InputStreamReader(getClass().getResourceAsStream("swipes.trace"), "UTF-8");
+		try {
+			trace = PageEventTrace.read(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void replayDoesBoundedWorkPerEvent() {
+		PagerSlidingTabStrip strip = TestStrips.create(RuntimeEnvironment.application, PAGE_COUNT);
+		final int[] lastSelected = { -1 };
+		strip.setOnTabStateChangeListener(new PagerSlidingTabStrip.OnTabStateChangeListener() {
+			@Override
+			public void onTabStateChange(View view, int position, boolean isSelected) {
+				if (isSelected) {
+					lastSelected[0] = position;
+				}
+			}
+		});
+
+		PageEventTrace.EventWork total = trace.replay(strip, new PageEventTrace.ReplayListener() {
+			@Override
+			public void onEventReplayed(int index, PageEventTrace.Event event, PageEventTrace.EventWork work) {
+				String message = "event " + index;
+				assertEquals(message, 0, work.viewsCreated);
+				assertEquals(message, 0, work.layoutPasses);
+				assertTrue(message, work.scrollUpdatesApplied <= 1);
+				switch (event.type) {
+				case PageEventTrace.TYPE_SCROLLED:
+					assertEquals(message, 1, work.invalidates);
+					assertEquals(message, 0, work.tabStateCallbacks);
+					break;
+				case PageEventTrace.TYPE_SELECTED:
+					// every tab is told its state once
+					assertEquals(message, PAGE_COUNT, work.tabStateCallbacks);
+					break;
+				case PageEventTrace.TYPE_STATE_CHANGED:
+					assertEquals(message, 0, work.tabStateCallbacks);
+					break;
+				}
+			}
+		});
+
+		assertEquals(2 * PAGE_COUNT, total.tabStateCallbacks);
+		assertEquals(12, lastSelected[0]);
+	}
+
+	@Test
+	public void replayFollowsTheTraceNotThePager() {
+		PagerSlidingTabStrip strip = TestStrips.create(RuntimeEnvironment.application, PAGE_COUNT);
+
+		trace.replay(strip, null);
+
+		// the pager itself never left the first page
+		assertEquals(0, strip.getTabPager().getCurrentItem());
+		View tab = strip.getTabView(12);
+		assertEquals(TabGeometry.scrollTarget(tab.getLeft(), 12, 0, strip.getScrollOffset()), strip.getScrollX());
+	}
+
+	@Test
+	public void writtenTraceReadsBack() throws IOException {
+		StringWriter writer = new StringWriter();
+		trace.write(writer);
+		PageEventTrace copy = PageEventTrace.read(new StringReader(writer.toString()));
+
+		assertEquals(trace.size(), copy.size());
+		for (int i = 0; i < trace.size(); i++) {
+			PageEventTrace.Event expected = trace.get(i);
+			PageEventTrace.Event actual = copy.get(i);
+			assertEquals(expected.timeNanos, actual.timeNanos);
+			assertEquals(expected.type, actual.type);
+			assertEquals(expected.value, actual.value);
+			assertEquals(expected.offset, actual.offset, 1e-6);
+			assertEquals(expected.offsetPixels, actual.offsetPixels);
+		}
+	}
+
+}
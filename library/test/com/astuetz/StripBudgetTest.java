@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.support.v4.view.ViewPager;
+import android.view.View;
+
+import com.astuetz.pagerslidingtabstrip.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Work budgets of the strip with a real {@link ViewPager} and 10, 500 and 5,000 pages. A change that makes the strip
+ * do more work per rebuild, scroll frame or page change fails here. The budgets count work instead of timing it, so
+ * they hold on slow and shared machines.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class StripBudgetTest {
+
+	private static final int[] PAGE_COUNTS = { 10, 500, 5000 };
+
+	private static final int SWIPE_FRAMES = 30;
+
+	@Test
+	public void rebuildSetsUpEachTabOnce() {
+		for (int pageCount : PAGE_COUNTS) {
+			PagerSlidingTabStrip strip = TestStrips.create(RuntimeEnvironment.application, pageCount);
+			StripCounters counters = strip.getCounters();
+			counters.reset();
+
+			strip.notifyDataSetChanged();
+			TestStrips.frame(strip);
+
+			String message = pageCount + " pages";
+			assertEquals(message, 1, counters.rebuilds);
+			assertEquals(message, pageCount, counters.tabViewsCreated);
+			// each tab is set up once, a rebuild doing quadratic work on 5,000 tabs fails here
+			assertEquals(message, pageCount, counters.pageTitleQueries);
+			assertEquals(message, pageCount, counters.tabsStyled);
+			assertEquals(message, 1, counters.measurePasses);
+			assertEquals(message, 1, counters.layoutPasses);
+		}
+	}
+
+	@Test
+	public void scrollFramesStayWithinBudget() {
+		for (int pageCount : PAGE_COUNTS) {
+			PagerSlidingTabStrip strip = TestStrips.create(RuntimeEnvironment.application, pageCount);
+			CountingListener listener = new CountingListener();
+			strip.setOnTabStateChangeListener(listener);
+			int page = pageCount / 2;
+			TestStrips.getViewPager(strip).setCurrentItem(page, false);
+			TestStrips.frame(strip);
+
+			StripCounters counters = strip.getCounters();
+			counters.reset();
+			listener.calls = 0;
+
+			TabPager.Callback callback = strip.getPagerCallback();
+			callback.onPageScrollStateChanged(TabPager.SCROLL_STATE_DRAGGING);
+			for (int i = 1; i <= SWIPE_FRAMES; i++) {
+				int invalidates = counters.invalidates;
+				float offset = (float) i / (SWIPE_FRAMES + 1);
+				callback.onPageScrolled(page, offset, Math.round(offset * TestStrips.WIDTH));
+				TestStrips.frame(strip);
+				assertEquals(pageCount + " pages, frame " + i, 1, counters.invalidates - invalidates);
+			}
+			callback.onPageScrollStateChanged(TabPager.SCROLL_STATE_IDLE);
+			TestStrips.frame(strip);
+
+			String message = pageCount + " pages";
+			assertEquals(message, SWIPE_FRAMES, counters.scrollFrames);
+			assertTrue(message, counters.scrollUpdatesApplied <= SWIPE_FRAMES + 1);
+			assertEquals(message, 0, counters.layoutPasses);
+			assertEquals(message, 0, counters.tabViewsCreated);
+			assertEquals(message, 0, counters.rebuilds);
+			assertEquals(message, 0, listener.calls);
+		}
+	}
+
+	@Test
+	public void pageChangeStaysWithinBudget() {
+		for (int pageCount : PAGE_COUNTS) {
+			PagerSlidingTabStrip strip = TestStrips.create(RuntimeEnvironment.application, pageCount);
+			CountingListener listener = new CountingListener();
+			strip.setOnTabStateChangeListener(listener);
+			StripCounters counters = strip.getCounters();
+			counters.reset();
+
+			TestStrips.getViewPager(strip).setCurrentItem(pageCount - 1, false);
+			TestStrips.frame(strip);
+
+			String message = pageCount + " pages";
+			assertEquals(message, 1, counters.pageSelections);
+			// every tab is told its state once, exactly one of them is selected
+			assertEquals(message, pageCount, listener.calls);
+			assertEquals(message, pageCount, counters.tabStateCallbacks);
+			assertEquals(message, 1, listener.selected);
+			assertEquals(message, 0, counters.layoutPasses);
+			assertEquals(message, 0, counters.tabViewsCreated);
+			assertEquals(message, 0, counters.rebuilds);
+		}
+	}
+
+	private static class CountingListener implements PagerSlidingTabStrip.OnTabStateChangeListener {
+
+		int calls;
+		int selected;
+
+		@Override
+		public void onTabStateChange(View view, int position, boolean isSelected) {
+			calls++;
+			if (isSelected) {
+				selected++;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.app.Activity;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import com.astuetz.pagerslidingtabstrip.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * A pager outliving its strip, as in a long-lived activity, must not keep the strip reachable once it is detached.
+ * A reattached strip catches up with the changes it missed.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class StripLeakTest {
+
+	private LinearLayout root;
+	private ViewPager pager;
+
+	@Before
+	public void setUp() {
+		Activity activity = Robolectric.setupActivity(Activity.class);
+		root = new LinearLayout(activity);
+		root.setOrientation(LinearLayout.VERTICAL);
+		activity.setContentView(root);
+		pager = new ViewPager(activity);
+		pager.setAdapter(new TestPagerAdapter(20));
+		root.addView(pager);
+	}
+
+	@Test
+	public void detachedStripIsCollectable() {
+		WeakReference<PagerSlidingTabStrip> strip = attachStrip();
+
+		root.removeView(strip.get());
+
+		assertCollected(strip);
+	}
+
+	@Test
+	public void stripIsCollectableAfterAdapterSwap() {
+		TestPagerAdapter oldAdapter = (TestPagerAdapter) pager.getAdapter();
+		WeakReference<PagerSlidingTabStrip> strip = attachStrip();
+		pager.setAdapter(new TestPagerAdapter(5));
+		StripCounters counters = strip.get().getCounters();
+		int rebuilds = counters.rebuilds;
+
+		// the strip no longer observes the old adapter
+		oldAdapter.setCount(30);
+		assertEquals(rebuilds, counters.rebuilds);
+
+		root.removeView(strip.get());
+
+		assertCollected(strip);
+	}
+
+	@Test
+	public void reattachedStripFollowsPageChangesWhileDetached() {
+		PagerSlidingTabStrip strip = new PagerSlidingTabStrip(root.getContext());
+		root.addView(strip, 0);
+		strip.setupWithViewPager(pager);
+		final int[] selected = { -1 };
+		strip.setOnTabStateChangeListener(new PagerSlidingTabStrip.OnTabStateChangeListener() {
+			@Override
+			public void onTabStateChange(View view, int position, boolean isSelected) {
+				if (isSelected) {
+					selected[0] = position;
+				}
+			}
+		});
+
+		root.removeView(strip);
+		pager.setCurrentItem(7, false);
+		root.addView(strip, 0);
+		ShadowLooper.idleMainLooper();
+
+		assertEquals(7, selected[0]);
+	}
+
+	@Test
+	public void reattachedStripRebuildsOnlyAfterDataSetChanges() {
+		PagerSlidingTabStrip strip = attachStrip().get();
+		StripCounters counters = strip.getCounters();
+		int rebuilds = counters.rebuilds;
+
+		root.removeView(strip);
+		root.addView(strip, 0);
+		assertEquals(rebuilds, counters.rebuilds);
+
+		root.removeView(strip);
+		((TestPagerAdapter) pager.getAdapter()).setCount(30);
+		assertEquals(rebuilds, counters.rebuilds);
+		root.addView(strip, 0);
+		assertEquals(rebuilds + 1, counters.rebuilds);
+		assertNotNull(strip.getTabView(29));
+	}
+
+	private WeakReference<PagerSlidingTabStrip> attachStrip() {
+		PagerSlidingTabStrip strip = new PagerSlidingTabStrip(root.getContext());
+		root.addView(strip, 0);
+		strip.setupWithViewPager(pager);
+		ShadowLooper.idleMainLooper();
+		return new WeakReference<PagerSlidingTabStrip>(strip);
+	}
+
+	private static void assertCollected(WeakReference<PagerSlidingTabStrip> strip) {
+		ShadowLooper.idleMainLooper();
+		for (int i = 0; i < 10 && strip.get() != null; i++) {
+			System.gc();
+			System.runFinalization();
+		}
+		assertNull("the detached strip is still reachable", strip.get());
+	}
+
+}
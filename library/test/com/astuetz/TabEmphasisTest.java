@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.view.View;
+
+import com.astuetz.pagerslidingtabstrip.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Scale and alpha of the selected and unselected tabs, as they are turned on and off.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabEmphasisTest {
+
+	private static final int PAGE_COUNT = 5;
+
+	@Test
+	public void emphasisTurnedOffResetsAllTabs() {
+		PagerSlidingTabStrip strip = TestStrips.create(RuntimeEnvironment.application, PAGE_COUNT);
+		TestStrips.getViewPager(strip).setCurrentItem(2, false);
+		strip.setSelectedTextScale(1.2f);
+		strip.setUnselectedTabAlpha(0.6f);
+
+		assertEquals(1.2f, strip.getTabView(2).getScaleX(), 0f);
+		assertEquals(0.6f, strip.getTabView(0).getAlpha(), 0f);
+
+		strip.setSelectedTextScale(1f);
+		strip.setUnselectedTabAlpha(1f);
+
+		for (int i = 0; i < PAGE_COUNT; i++) {
+			View tab = strip.getTabView(i);
+			assertEquals("tab " + i, 1f, tab.getScaleX(), 0f);
+			assertEquals("tab " + i, 1f, tab.getAlpha(), 0f);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.view.ViewGroup;
+
+import com.astuetz.pagerslidingtabstrip.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tab models set one after the other, with and without a limit on the number of tabs.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class TabModelReconcileTest {
+
+	private static final int MAX_TABS = 5;
+
+	@Test
+	public void modelPastMaxTabsIsWindowed() {
+		PagerSlidingTabStrip strip = new PagerSlidingTabStrip(RuntimeEnvironment.application);
+		strip.setMaxTabs(MAX_TABS);
+		strip.setTabModel(model(0, 3));
+		TestStrips.layout(strip);
+		strip.getTabPager().setCurrentItem(2, false);
+		StripCounters counters = strip.getCounters();
+		counters.reset();
+
+		// the ids are reversed, the selected tab with id 2 moves to position 7
+		strip.setTabModel(reversedModel(10));
+		TestStrips.frame(strip);
+
+		ViewGroup tabsContainer = (ViewGroup) strip.getChildAt(0);
+		assertEquals("the window and the overflow tab", MAX_TABS + 1, tabsContainer.getChildCount());
+		assertEquals(MAX_TABS, counters.tabViewsCreated);
+		assertEquals(7, strip.getTabPager().getCurrentItem());
+		assertNotNull(strip.getTabView(7));
+		assertNull(strip.getTabView(0));
+	}
+
+	@Test
+	public void modelWithinMaxTabsKeepsTabViews() {
+		PagerSlidingTabStrip strip = new PagerSlidingTabStrip(RuntimeEnvironment.application);
+		strip.setMaxTabs(MAX_TABS);
+		strip.setTabModel(model(0, 3));
+		TestStrips.layout(strip);
+		StripCounters counters = strip.getCounters();
+		counters.reset();
+
+		strip.setTabModel(model(0, MAX_TABS));
+
+		assertEquals(MAX_TABS - 3, counters.tabViewsCreated);
+		assertEquals(0, counters.rebuilds);
+	}
+
+	private static TabModel model(int firstId, int size) {
+		TabModel.Builder builder = new TabModel.Builder();
+		for (int i = 0; i < size; i++) {
+			builder.add(tab(firstId + i));
+		}
+		return builder.build();
+	}
+
+	private static TabModel reversedModel(int size) {
+		TabModel.Builder builder = new TabModel.Builder();
+		for (int i = size - 1; i >= 0; i--) {
+			builder.add(tab(i));
+		}
+		return builder.build();
+	}
+
+	private static TabModel.Tab tab(long id) {
+		return new TabModel.Tab.Builder(id).setTitle("Tab " + id).build();
+	}
+
+}
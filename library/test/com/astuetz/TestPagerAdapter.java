@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.support.v4.view.PagerAdapter;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Adapter with a given number of empty pages, titled by their number.
+ */
+class TestPagerAdapter extends PagerAdapter {
+
+	private int count;
+
+	TestPagerAdapter(int count) {
+		this.count = count;
+	}
+
+	void setCount(int count) {
+		this.count = count;
+		notifyDataSetChanged();
+	}
+
+	@Override
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public CharSequence getPageTitle(int position) {
+		return "Page " + (position + 1);
+	}
+
+	@Override
+	public Object instantiateItem(ViewGroup container, int position) {
+		View page = new View(container.getContext());
+		container.addView(page);
+		return page;
+	}
+
+	@Override
+	public void destroyItem(ViewGroup container, int position, Object object) {
+		container.removeView((View) object);
+	}
+
+	@Override
+	public boolean isViewFromObject(View view, Object object) {
+		return view == object;
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz;
+
+import android.content.Context;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+/**
+ * Sets up strips with a real {@link ViewPager} and lays them out the way a frame would, without a window.
+ */
+final class TestStrips {
+
+	static final int WIDTH = 1080;
+	static final int HEIGHT = 144;
+
+	private TestStrips() {
+	}
+
+	static PagerSlidingTabStrip create(Context context, int pageCount) {
+		ViewPager pager = new ViewPager(context);
+		pager.setAdapter(new TestPagerAdapter(pageCount));
+		PagerSlidingTabStrip strip = new PagerSlidingTabStrip(context);
+		strip.setupWithViewPager(pager);
+		layout(strip);
+		return strip;
+	}
+
+	static ViewPager getViewPager(PagerSlidingTabStrip strip) {
+		return ((ViewPagerTabPager) strip.getTabPager()).getViewPager();
+	}
+
+	static void layout(View view) {
+		view.measure(MeasureSpec.makeMeasureSpec(WIDTH, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(HEIGHT, MeasureSpec.EXACTLY));
+		view.layout(0, 0, WIDTH, HEIGHT);
+	}
+
+	/**
+	 * Runs the layout pass of a frame, if the view asked for one.
+	 */
+	static void frame(View view) {
+		if (view.isLayoutRequested()) {
+			layout(view);
+		}
+	}
+
+}
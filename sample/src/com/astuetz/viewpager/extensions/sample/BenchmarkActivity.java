@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2013 Andreas Stuetz <andreas.stuetz@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.astuetz.viewpager.extensions.sample;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.support.v4.app.FragmentActivity;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.Gravity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.astuetz.PagerSlidingTabStrip;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates large strips, runs scripted swipes and tab jumps and records the frame intervals of the run to a CSV file
+ * in the external files directory of the app, so library versions can be compared on the same device.
+ */
+public class BenchmarkActivity extends FragmentActivity {
+
+	private static final String TAG = "PstsBenchmark";
+
+	private static final int TYPE_TEXT = 0;
+	private static final int TYPE_ICON = 1;
+	private static final int TYPE_VIEW = 2;
+
+	private static final int SWIPES = 30;
+	private static final int SWIPE_FRAMES = 20;
+	private static final int JUMPS = 20;
+	private static final long FRAME_DELAY = 16;
+	private static final long SWIPE_PAUSE = 300;
+	private static final long JUMP_PAUSE = 600;
+
+	private static final int[] ICONS = { R.drawable.ic_launcher_gplus, R.drawable.ic_launcher_gmail,
+			R.drawable.ic_launcher_gmaps, R.drawable.ic_launcher_chrome };
+
+	private final Handler handler = new Handler();
+	private final Random random = new Random(1);
+
+	private PagerSlidingTabStrip tabs;
+	private ViewPager pager;
+	private TextView status;
+
+	private int tabCount = 1000;
+	private int tabType = TYPE_TEXT;
+	private boolean badges = false;
+
+	private FrameRecorder recorder;
+	private boolean running = false;
+
+	@Override
+	protected void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setContentView(R.layout.activity_benchmark);
+
+		tabs = (PagerSlidingTabStrip) findViewById(R.id.tabs);
+		pager = (ViewPager) findViewById(R.id.pager);
+		status = (TextView) findViewById(R.id.status);
+
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			findViewById(R.id.run).setEnabled(false);
+			status.setText(R.string.benchmark_needs_frame_timing);
+		}
+
+		tabs.setMetricsEnabled(true);
+		applyAdapter();
+	}
+
+	@Override
+	protected void onDestroy() {
+		handler.removeCallbacksAndMessages(null);
+		if (recorder != null) {
+			recorder.stop();
+		}
+		super.onDestroy();
+	}
+
+	@Override
+	public boolean onCreateOptionsMenu(Menu menu) {
+		getMenuInflater().inflate(R.menu.benchmark, menu);
+		return true;
+	}
+
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+
+		if (running) {
+			return true;
+		}
+
+		if (item.getGroupId() == R.id.group_options) {
+			item.setChecked(!item.isChecked());
+		} else {
+			item.setChecked(true);
+		}
+		boolean checked = item.isChecked();
+
+		switch (item.getItemId()) {
+
+		case R.id.tabs_10:
+			tabCount = 10;
+			applyAdapter();
+			return true;
+
+		case R.id.tabs_100:
+			tabCount = 100;
+			applyAdapter();
+			return true;
+
+		case R.id.tabs_1000:
+			tabCount = 1000;
+			applyAdapter();
+			return true;
+
+		case R.id.tabs_5000:
+			tabCount = 5000;
+			applyAdapter();
+			return true;
+
+		case R.id.type_text:
+			tabType = TYPE_TEXT;
+			applyAdapter();
+			return true;
+
+		case R.id.type_icon:
+			tabType = TYPE_ICON;
+			applyAdapter();
+			return true;
+
+		case R.id.type_view:
+			tabType = TYPE_VIEW;
+			applyAdapter();
+			return true;
+
+		case R.id.option_expand:
+			tabs.setShouldExpand(checked);
+			tabs.notifyDataSetChanged();
+			return true;
+
+		case R.id.option_all_caps:
+			tabs.setAllCaps(checked);
+			tabs.notifyDataSetChanged();
+			return true;
+
+		case R.id.option_emphasis:
+			if (checked) {
+				tabs.setSelectedTextColor(0xFF33B5E5);
+			} else {
+				tabs.clearSelectedTextColor();
+			}
+			tabs.setSelectedTextScale(checked ? 1.15f : 1f);
+			tabs.setUnselectedTabAlpha(checked ? 0.6f : 1f);
+			return true;
+
+		case R.id.option_badges:
+			badges = checked;
+			tabs.notifyDataSetChanged();
+			return true;
+
+		case R.id.option_hardware_layer:
+			tabs.setHardwareLayerOnScroll(checked);
+			return true;
+
+		case R.id.option_tab_background:
+			tabs.setTabBackground(checked ? R.drawable.background_tab : 0);
+			tabs.notifyDataSetChanged();
+			return true;
+
+		case R.id.option_save_metrics:
+			tabs.setSaveTabMetrics(checked);
+			return true;
+
+		}
+
+		return super.onOptionsItemSelected(item);
+	}
+
+	private void applyAdapter() {
+		BenchmarkAdapter adapter;
+		switch (tabType) {
+		case TYPE_ICON:
+			adapter = new IconAdapter(tabCount);
+			break;
+		case TYPE_VIEW:
+			adapter = new ViewAdapter(tabCount);
+			break;
+		default:
+			adapter = new BenchmarkAdapter(tabCount);
+			break;
+		}
+		pager.setAdapter(adapter);
+		tabs.setupWithViewPager(pager);
+		status.setText(String.format(Locale.US, "Rebuilt %d tabs in %.1f ms", tabCount, tabs.getMetrics().getLastRebuildNanos() / 1e6));
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	public void onRunClicked(View v) {
+		if (running) {
+			return;
+		}
+		running = true;
+		status.setText(R.string.benchmark_running);
+
+		tabs.resetMetrics();
+		tabs.setMetricsEnabled(true);
+
+		recorder = new FrameRecorder();
+		recorder.start();
+		runStep(0);
+	}
+
+	private void runStep(final int step) {
+		final Runnable next = new Runnable() {
+			@Override
+			public void run() {
+				runStep(step + 1);
+			}
+		};
+
+		if (step < SWIPES) {
+			recorder.setPhase("swipe");
+			// every fifth swipe goes back, like a user reversing direction
+			swipe(step % 5 == 4 ? 1 : -1, new Runnable() {
+				@Override
+				public void run() {
+					handler.postDelayed(next, SWIPE_PAUSE);
+				}
+			});
+		} else if (step < SWIPES + JUMPS) {
+			recorder.setPhase("jump");
+			pager.setCurrentItem(random.nextInt(tabCount), true);
+			handler.postDelayed(next, JUMP_PAUSE);
+		} else {
+			finishRun();
+		}
+	}
+
+	/**
+	 * Drags the pager by one page width over {@link #SWIPE_FRAMES} frames.
+	 *
+	 * @param direction -1 to swipe to the next page, 1 to swipe to the previous page
+	 */
+	private void swipe(int direction, final Runnable done) {
+		if (!pager.beginFakeDrag()) {
+			done.run();
+			return;
+		}
+
+		final float step = direction * pager.getWidth() / (float) SWIPE_FRAMES;
+		handler.post(new Runnable() {
+			private int frame = 0;
+
+			@Override
+			public void run() {
+				if (!pager.isFakeDragging()) {
+					done.run();
+					return;
+				}
+				pager.fakeDragBy(step);
+				if (++frame < SWIPE_FRAMES) {
+					handler.postDelayed(this, FRAME_DELAY);
+				} else {
+					pager.endFakeDrag();
+					done.run();
+				}
+			}
+		});
+	}
+
+	private void finishRun() {
+		recorder.stop();
+		running = false;
+
+		long[] frames = Arrays.copyOf(recorder.frameNanos, recorder.count);
+		Arrays.sort(frames);
+
+		String summary;
+		if (frames.length == 0) {
+			summary = "No frames recorded";
+		} else {
+			summary = String.format(Locale.US, "%d frames, p50 %.1f ms, p90 %.1f ms, max %.1f ms", frames.length,
+					frames[frames.length / 2] / 1e6, frames[frames.length * 9 / 10] / 1e6, frames[frames.length - 1] / 1e6);
+		}
+
+		try {
+			File file = writeCsv();
+			summary += "\n" + file.getAbsolutePath();
+		} catch (IOException e) {
+			Log.w(TAG, "Could not write the benchmark results", e);
+			summary += "\nCould not write results: " + e.getMessage();
+		}
+
+		Log.d(TAG, summary + "\n" + tabs.getMetrics());
+		status.setText(summary);
+	}
+
+	private File writeCsv() throws IOException {
+		File dir = getExternalFilesDir(null);
+		if (dir == null) {
+			dir = getFilesDir();
+		}
+		File file = new File(dir, "psts-benchmark-" + System.currentTimeMillis() + ".csv");
+
+		String tabTypeName = tabType == TYPE_ICON ? "icon" : tabType == TYPE_VIEW ? "view" : "text";
+		String options = describeOptions();
+
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write("frame,phase,frame_time_ms,tab_count,tab_type,options\n");
+			for (int i = 0; i < recorder.count; i++) {
+				writer.write(i + "," + recorder.phases[i] + "," + String.format(Locale.US, "%.3f", recorder.frameNanos[i] / 1e6) + ","
+						+ tabCount + "," + tabTypeName + "," + options + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private String describeOptions() {
+		StringBuilder sb = new StringBuilder();
+		if (tabs.getShouldExpand()) {
+			sb.append("expand;");
+		}
+		if (tabs.isTextAllCaps()) {
+			sb.append("caps;");
+		}
+		if (tabs.getSelectedTextScale() != 1f) {
+			sb.append("emphasis;");
+		}
+		if (badges) {
+			sb.append("badges;");
+		}
+		if (tabs.isHardwareLayerOnScroll()) {
+			sb.append("layer;");
+		}
+		if (tabs.getTabBackground() != 0) {
+			sb.append("background;");
+		}
+		if (tabs.isSaveTabMetrics()) {
+			sb.append("metrics;");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Records the interval between consecutive frames with the {@link Choreographer}.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static class FrameRecorder implements Choreographer.FrameCallback {
+
+		private long[] frameNanos = new long[1024];
+		private String[] phases = new String[1024];
+		private int count = 0;
+
+		private String phase = "";
+		private long lastFrameTimeNanos = 0;
+		private boolean recording = false;
+
+		void start() {
+			recording = true;
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		void stop() {
+			recording = false;
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+
+		void setPhase(String phase) {
+			this.phase = phase;
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			if (!recording) {
+				return;
+			}
+			if (lastFrameTimeNanos != 0) {
+				if (count == frameNanos.length) {
+					frameNanos = Arrays.copyOf(frameNanos, count * 2);
+					phases = Arrays.copyOf(phases, count * 2);
+				}
+				frameNanos[count] = frameTimeNanos - lastFrameTimeNanos;
+				phases[count] = phase;
+				count++;
+			}
+			lastFrameTimeNanos = frameTimeNanos;
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+	}
+
+	private class BenchmarkAdapter extends PagerAdapter implements PagerSlidingTabStrip.BadgeProvider {
+
+		private final int count;
+
+		BenchmarkAdapter(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public int getCount() {
+			return count;
+		}
+
+		@Override
+		public CharSequence getPageTitle(int position) {
+			return "Tab " + (position + 1);
+		}
+
+		@Override
+		public CharSequence getPageBadge(int position) {
+			return badges && position % 7 == 0 ? String.valueOf(position % 100) : null;
+		}
+
+		@Override
+		public Object instantiateItem(ViewGroup container, int position) {
+			TextView v = new TextView(BenchmarkActivity.this);
+			v.setGravity(Gravity.CENTER);
+			v.setText("PAGE " + (position + 1));
+			container.addView(v);
+			return v;
+		}
+
+		@Override
+		public void destroyItem(ViewGroup container, int position, Object object) {
+			container.removeView((View) object);
+		}
+
+		@Override
+		public boolean isViewFromObject(View view, Object object) {
+			return view == object;
+		}
+
+	}
+
+	private class IconAdapter extends BenchmarkAdapter implements PagerSlidingTabStrip.IconTabProvider {
+
+		IconAdapter(int count) {
+			super(count);
+		}
+
+		@Override
+		public int getPageIconResId(int position) {
+			return ICONS[position % ICONS.length];
+		}
+
+	}
+
+	private class ViewAdapter extends BenchmarkAdapter implements PagerSlidingTabStrip.ViewTabProvider {
+
+		ViewAdapter(int count) {
+			super(count);
+		}
+
+		@Override
+		public View getPageView(int position) {
+			LinearLayout tab = new LinearLayout(BenchmarkActivity.this);
+			tab.setOrientation(LinearLayout.HORIZONTAL);
+			tab.setGravity(Gravity.CENTER);
+
+			ImageView icon = new ImageView(BenchmarkActivity.this);
+			icon.setImageResource(ICONS[position % ICONS.length]);
+			int size = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 24, getResources().getDisplayMetrics());
+			tab.addView(icon, new LinearLayout.LayoutParams(size, size));
+
+			TextView title = new TextView(BenchmarkActivity.this);
+			title.setText(getPageTitle(position));
+			tab.addView(title);
+
+			return tab;
+		}
+
+	}
+
+}
@@ -16,6 +16,7 @@
 
 package com.astuetz.viewpager.extensions.sample;
 
+import android.content.Intent;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
@@ -83,6 +84,10 @@ public class MainActivity extends FragmentActivity {
 			dialog.show(getSupportFragmentManager(), "QuickContactFragment");
 			return true;
 
+		case R.id.action_benchmark:
+			startActivity(new Intent(this, BenchmarkActivity.class));
+			return true;
+
 		}
 
 		return super.onOptionsItemSelected(item);